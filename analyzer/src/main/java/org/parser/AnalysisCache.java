@@ -0,0 +1,131 @@
+package org.parser;
+
+import com.github.javaparser.JavaParserBuild;
+import com.github.javaparser.symbolsolver.JavaSymbolSolver;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/*
+持久化的分析缓存：每个源文件一项，记录文件中声明的方法、解析出的调用目标和调用点的实参信息。
+缓存项以文件内容的哈希和解析器/符号解析器的版本为键，两者都没有变化的文件在下次分析时不需要重新解析。
+缓存文件放在被分析项目的目录中，读取时只允许反序列化缓存自己的记录类型，其他类型的对象一律拒绝。
+ */
+public class AnalysisCache {
+    // 缓存格式变化时修改这个版本号
+    private static final String FORMAT_VERSION = "5";
+    public static final String VERSION = FORMAT_VERSION + "/" + JavaParserBuild.PROJECT_VERSION + "/" + solverVersion();
+
+    // 一个源文件的缓存项；types和referencedNames是文件中声明的类型和出现的名称，见ClassInfoInFile
+    public record FileEntry(String path,
+                            String contentHash,
+                            String version,
+                            String className,
+                            String packageName,
+                            List<MethodSummary> methods,
+                            List<TypeSummary> types,
+                            List<String> referencedNames) implements Serializable {
+    }
+
+    // 缓存文件中只可能出现的类型：缓存项、方法摘要、类型摘要、调用点、实参，以及它们用到的String、HashMap、List和List内部的Object数组
+    private static final ObjectInputFilter FILTER = ObjectInputFilter.Config.createFilter(String.join(";",
+            FileEntry.class.getName(), MethodSummary.class.getName(), TypeSummary.class.getName(),
+            CallSite.class.getName(), ParameterInfo.class.getName(),
+            String.class.getName(), HashMap.class.getName(), "java.util.Map$Entry", ArrayList.class.getName(),
+            "java.util.CollSer", "java.util.ImmutableCollections$ListN", "java.util.ImmutableCollections$List12",
+            Object.class.getName(), "maxdepth=16", "!*"));
+
+    private final Path cacheFile;
+    private final Map<String, FileEntry> entries; // 按源文件路径索引
+    private boolean modified;
+
+    public AnalysisCache(Path cacheFile) {
+        this.cacheFile = cacheFile;
+        this.entries = load(cacheFile);
+    }
+
+    // 打开某个包对应的缓存文件
+    public static AnalysisCache open(String packageName) {
+        return new AnalysisCache(Path.of(GlobalVariables.getCachePath(), packageName + ".cache"));
+    }
+
+    // 返回内容哈希和版本都与当前一致的缓存项，否则返回null
+    public FileEntry getValid(String path, String contentHash) {
+        FileEntry entry = entries.get(path);
+        if (entry != null && entry.contentHash().equals(contentHash) && entry.version().equals(VERSION)) {
+            return entry;
+        }
+        return null;
+    }
+
+    public Collection<FileEntry> getEntries() {
+        return entries.values();
+    }
+
+    public void put(FileEntry entry) {
+        entries.put(entry.path(), entry);
+        modified = true;
+    }
+
+    // 删除已经不存在的源文件的缓存项
+    public void retainPaths(Set<String> paths) {
+        modified |= entries.keySet().retainAll(paths);
+    }
+
+    // 先写临时文件再替换，避免中途失败留下损坏的缓存
+    public void save() {
+        if (!modified) {
+            return;
+        }
+        try {
+            Files.createDirectories(cacheFile.toAbsolutePath().getParent());
+            Path tempFile = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+            try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                out.writeObject(new HashMap<>(entries));
+            }
+            Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            modified = false;
+        } catch (IOException e) {
+            System.out.println("无法写入分析缓存: " + e.getMessage());
+        }
+    }
+
+    // 读取缓存文件，文件不存在或已损坏时返回空缓存
+    @SuppressWarnings("unchecked")
+    private static Map<String, FileEntry> load(Path cacheFile) {
+        if (!Files.exists(cacheFile)) {
+            return new HashMap<>();
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+            in.setObjectInputFilter(FILTER);
+            return (Map<String, FileEntry>) in.readObject();
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            System.out.println("分析缓存无法读取，将重新分析: " + e.getMessage());
+            return new HashMap<>();
+        }
+    }
+
+    // 计算文件内容的SHA-256
+    public static String contentHash(File file) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(Files.readAllBytes(file.toPath())));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // symbol-solver的jar里没有版本信息，用jar文件名代替
+    private static String solverVersion() {
+        try {
+            return new File(JavaSymbolSolver.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getName();
+        } catch (Exception e) {
+            return "unknown";
+        }
+    }
+}
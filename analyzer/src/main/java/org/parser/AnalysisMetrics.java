@@ -0,0 +1,276 @@
+package org.parser;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+一个ProjectAnalyzer的分析统计：各阶段的耗时、调用点解析的成功和失败次数(失败按原因分类)、每个文件的耗时。
+解析失败不再在循环中打印异常，只计数并保留前几条作为样例，在getSummary中输出。
+并行解析时多个线程同时记录，计数器都是线程安全的。
+ */
+public class AnalysisMetrics implements AnalysisMetricsMXBean {
+    // 分析的阶段；类型解析包括建立签名索引时解析方法声明，以及链接阶段中解析调用目标，后者和实参收集的耗时都包含在链接的耗时里
+    // 提取事实(见FileFacts)在解析文件的线程中进行，耗时是各线程的累计，包含在解析的耗时里
+    public enum Phase {
+        DISCOVERY("查找文件"),
+        PARSE("解析"),
+        EXTRACTION("提取事实"),
+        TYPE_RESOLUTION("类型解析"),
+        LINKING("链接"),
+        PARAMETER_COLLECTION("实参收集");
+
+        private final String description;
+
+        Phase(String description) {
+            this.description = description;
+        }
+    }
+
+    private static final int MAX_FAILURE_SAMPLES = 10;
+
+    private final LongAdder[] phaseNanos = new LongAdder[Phase.values().length];
+    private final LongAdder filesDiscovered = new LongAdder();
+    private final LongAdder filesParsed = new LongAdder();
+    private final LongAdder filesRestored = new LongAdder();
+    private final LongAdder methodsAnalyzed = new LongAdder();
+    private final LongAdder callsLinked = new LongAdder();
+    private final LongAdder callsExternal = new LongAdder();
+    private final LongAdder callsFailed = new LongAdder();
+    private final LongAdder callsFiltered = new LongAdder();
+    private final LongAdder callsKnownUnresolvable = new LongAdder();
+    private final LongAdder declarationsFailed = new LongAdder();
+    private final Map<String, LongAdder> failureCauses = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> fileNanos = new ConcurrentHashMap<>();
+    private final Queue<String> failureSamples = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger failureSampleCount = new AtomicInteger();
+    private ObjectName objectName;
+
+    public AnalysisMetrics() {
+        for (int i = 0; i < phaseNanos.length; i++) {
+            phaseNanos[i] = new LongAdder();
+        }
+    }
+
+    // 计时从这里开始，结束时把返回值传给record
+    public long start() {
+        return System.nanoTime();
+    }
+
+    // 记录从startNanos到现在的耗时，返回耗时(纳秒)
+    public long record(Phase phase, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        phaseNanos[phase.ordinal()].add(elapsed);
+        return elapsed;
+    }
+
+    public void recordFileTime(String path, long nanos) {
+        fileNanos.computeIfAbsent(path, key -> new LongAdder()).add(nanos);
+    }
+
+    public void recordFilesDiscovered(int count) {
+        filesDiscovered.add(count);
+    }
+
+    public void recordFileParsed() {
+        filesParsed.increment();
+    }
+
+    public void recordFilesRestored(int count) {
+        filesRestored.add(count);
+    }
+
+    public void recordMethodAnalyzed() {
+        methodsAnalyzed.increment();
+    }
+
+    public void recordCallLinked() {
+        callsLinked.increment();
+    }
+
+    public void recordCallExternal() {
+        callsExternal.increment();
+    }
+
+    // 方法名和参数个数与项目中的方法都不符，没有解析
+    public void recordCallFiltered() {
+        callsFiltered.increment();
+    }
+
+    // 之前解析失败过，这次没有解析
+    public void recordCallKnownUnresolvable() {
+        callsKnownUnresolvable.increment();
+    }
+
+    // 调用点解析失败，where说明是哪个调用
+    public void recordCallFailed(Exception cause, String where) {
+        callsFailed.increment();
+        recordFailure(cause, where);
+    }
+
+    public void recordDeclarationFailed(Exception cause, String where) {
+        declarationsFailed.increment();
+        recordFailure(cause, where);
+    }
+
+    private void recordFailure(Exception cause, String where) {
+        failureCauses.computeIfAbsent(cause.getClass().getSimpleName(), key -> new LongAdder()).increment();
+        if (failureSampleCount.getAndIncrement() < MAX_FAILURE_SAMPLES) {
+            failureSamples.add(where + " (" + cause.getClass().getSimpleName() + ": " + cause.getMessage() + ")");
+        }
+    }
+
+    // 注册到平台MBeanServer，同一个包之前注册的统计被替换
+    public void register(String packageName) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("org.parser:type=AnalysisMetrics,package=" + ObjectName.quote(packageName));
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+            objectName = name;
+        } catch (JMException e) {
+            System.out.println("无法注册JMX统计: " + e.getMessage());
+        }
+    }
+
+    public ObjectName getObjectName() {
+        return objectName;
+    }
+
+    @Override
+    public long getFilesDiscovered() {
+        return filesDiscovered.sum();
+    }
+
+    @Override
+    public long getFilesParsed() {
+        return filesParsed.sum();
+    }
+
+    @Override
+    public long getFilesRestoredFromCache() {
+        return filesRestored.sum();
+    }
+
+    @Override
+    public long getMethodsAnalyzed() {
+        return methodsAnalyzed.sum();
+    }
+
+    @Override
+    public Map<String, Long> getPhaseMillis() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Phase phase : Phase.values()) {
+            result.put(phase.name(), toMillis(phaseNanos[phase.ordinal()].sum()));
+        }
+        return result;
+    }
+
+    @Override
+    public long getCallsLinked() {
+        return callsLinked.sum();
+    }
+
+    @Override
+    public long getCallsExternal() {
+        return callsExternal.sum();
+    }
+
+    @Override
+    public long getCallsFailed() {
+        return callsFailed.sum();
+    }
+
+    @Override
+    public long getCallsFiltered() {
+        return callsFiltered.sum();
+    }
+
+    @Override
+    public long getCallsKnownUnresolvable() {
+        return callsKnownUnresolvable.sum();
+    }
+
+    @Override
+    public long getDeclarationsFailed() {
+        return declarationsFailed.sum();
+    }
+
+    @Override
+    public Map<String, Long> getFailureCauses() {
+        return sortedByCount(failureCauses, Integer.MAX_VALUE, 1);
+    }
+
+    @Override
+    public Map<String, Long> getFileMillis() {
+        Map<String, Long> result = new TreeMap<>();
+        fileNanos.forEach((path, nanos) -> result.put(path, toMillis(nanos.sum())));
+        return result;
+    }
+
+    @Override
+    public String getSummary() {
+        StringBuilder summary = new StringBuilder("分析统计:\n");
+        summary.append("  文件: 找到").append(getFilesDiscovered()).append("个, 解析").append(getFilesParsed())
+                .append("个, 从缓存恢复").append(getFilesRestoredFromCache()).append("个\n");
+        summary.append("  方法: 分析").append(getMethodsAnalyzed()).append("个, 签名无法解析").append(getDeclarationsFailed()).append("个\n");
+        summary.append("  调用点: 链接").append(getCallsLinked()).append("个, 项目外").append(getCallsExternal())
+                .append("个, 解析失败").append(getCallsFailed()).append("个, 按名称跳过").append(getCallsFiltered())
+                .append("个, 已知无法解析").append(getCallsKnownUnresolvable()).append("个\n");
+        summary.append("  耗时:\n");
+        for (Phase phase : Phase.values()) {
+            summary.append("    ").append(phase.description).append(": ")
+                    .append(toMillis(phaseNanos[phase.ordinal()].sum())).append(" ms\n");
+        }
+        if (!failureCauses.isEmpty()) {
+            summary.append("  失败原因:\n");
+            getFailureCauses().forEach((cause, count) -> summary.append("    ").append(cause).append(": ").append(count).append('\n'));
+            summary.append("  失败样例:\n");
+            failureSamples.forEach(sample -> summary.append("    ").append(sample).append('\n'));
+        }
+        Map<String, Long> slowest = sortedByCount(fileNanos, 5, 1_000_000);
+        if (!slowest.isEmpty()) {
+            summary.append("  最慢的文件:\n");
+            slowest.forEach((path, millis) -> summary.append("    ").append(path).append(": ").append(millis).append(" ms\n"));
+        }
+        return summary.toString();
+    }
+
+    @Override
+    public void reset() {
+        for (LongAdder adder : phaseNanos) {
+            adder.reset();
+        }
+        for (LongAdder adder : List.of(filesDiscovered, filesParsed, filesRestored, methodsAnalyzed,
+                callsLinked, callsExternal, callsFailed, callsFiltered, callsKnownUnresolvable, declarationsFailed)) {
+            adder.reset();
+        }
+        failureCauses.clear();
+        fileNanos.clear();
+        failureSamples.clear();
+        failureSampleCount.set(0);
+    }
+
+    // 按值从大到小取前limit项，值除以divisor
+    private static Map<String, Long> sortedByCount(Map<String, LongAdder> counters, int limit, long divisor) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        counters.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue().sum(), a.getValue().sum()))
+                .limit(limit)
+                .forEach(entry -> result.put(entry.getKey(), entry.getValue().sum() / divisor));
+        return result;
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+}
@@ -0,0 +1,42 @@
+package org.parser;
+
+import java.util.Map;
+
+// 通过JMX查看分析过程的统计数据，对象名为org.parser:type=AnalysisMetrics,package=包名；时间单位都是毫秒
+public interface AnalysisMetricsMXBean {
+    long getFilesDiscovered();
+
+    long getFilesParsed();
+
+    long getFilesRestoredFromCache();
+
+    long getMethodsAnalyzed();
+
+    // 各阶段累计耗时，键为阶段名
+    Map<String, Long> getPhaseMillis();
+
+    // 调用点解析结果：解析到项目内的方法、解析到项目外的方法(JDK等)、解析失败
+    long getCallsLinked();
+
+    long getCallsExternal();
+
+    long getCallsFailed();
+
+    // 没有交给符号解析器的调用点：方法名和参数个数与项目中的方法都不符、之前已经解析失败过
+    long getCallsFiltered();
+
+    long getCallsKnownUnresolvable();
+
+    // 方法声明的签名无法解析的个数
+    long getDeclarationsFailed();
+
+    // 解析失败按原因(异常类名)计数
+    Map<String, Long> getFailureCauses();
+
+    // 每个文件的解析和链接耗时
+    Map<String, Long> getFileMillis();
+
+    String getSummary();
+
+    void reset();
+}
@@ -0,0 +1,319 @@
+package org.parser;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/*
+常驻的分析服务：只监听本机地址，每个包第一次被查询时分析一次，之后调用关系图和符号解析器缓存一直保留在内存中，
+并像监视模式一样监视源代码目录、增量更新，编辑器插件和提交前检查每次查询不需要重新启动JVM和解析整个项目。
+
+GET /query?q=方法名[(参数类型,...)],包名.类名,深度[&overload=序号]
+  200 返回与交互模式相同格式的查询结果；
+  300 方法有重载而既没有写参数类型也没有指定overload，返回重载方法的列表(与交互模式的提示相同)，用其中的序号或参数类型重新查询；
+  400 查询格式错误，404 没有找到方法。
+
+GET /reach?from=方法名[(参数类型,...)],包名.类名&to=方法名[(参数类型,...)],包名.类名
+  200 返回from是否直接或间接调用了to，以及最少经过几层调用(不可达时为-1)，由可达性索引回答，不遍历调用关系；
+  300 方法有重载而没有写参数类型；400 格式错误或两个方法不在同一个包中；404 没有找到方法。
+
+GET /cycles?package=包名
+  200 返回包中所有的递归组(互相递归的方法，即调用关系图中的强连通分量)，没有递归时返回[NONE]。
+
+GET /origins?q=方法名[(参数类型,...)],包名.类名,深度&param=形参名或下标
+  200 返回形参的值可能的来源(字面量、表达式、成员变量、入口等)，最多逆着调用关系追踪深度层，格式见ParameterOriginTracer.render；
+  300 方法有重载而没有写参数类型；400 格式错误或缺少param；404 没有找到方法或形参。
+ */
+public class AnalysisServer implements AutoCloseable {
+    private final HttpServer server;
+    private final ExecutorService executor;
+    // 每个包一个分析任务，查询同一个包的线程等待同一个任务，不同的包同时分析
+    private final ConcurrentHashMap<String, Future<ProjectAnalyzer>> projectAnalyzers = new ConcurrentHashMap<>();
+    private final List<SourceWatcher> watchers = Collections.synchronizedList(new ArrayList<>());
+
+    public AnalysisServer(int port, int threads) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        executor = Executors.newFixedThreadPool(threads);
+        server.setExecutor(executor);
+        server.createContext("/query", this::handleQuery);
+        server.createContext("/reach", this::handleReach);
+        server.createContext("/cycles", this::handleCycles);
+        server.createContext("/origins", this::handleOrigins);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    // 实际监听的端口，port为0时由系统分配
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /*
+    每个包只分析一次，同时启动一个后台线程监视它的源代码目录。分析在第一个查询这个包的线程中进行，不持有服务器的锁，
+    其他包的查询不必等待；分析失败时删除任务，下一次查询重新分析。
+     */
+    private ProjectAnalyzer getProjectAnalyzer(String packageName) {
+        FutureTask<ProjectAnalyzer> task = new FutureTask<>(() -> {
+            ProjectAnalyzer projectAnalyzer = new ProjectAnalyzer(packageName);
+            try {
+                SourceWatcher watcher = new SourceWatcher(projectAnalyzer);
+                watchers.add(watcher);
+                Thread watcherThread = new Thread(watcher, "source-watcher-" + packageName);
+                watcherThread.setDaemon(true);
+                watcherThread.start();
+            } catch (IOException e) {
+                System.out.println("无法监视源代码目录，包 " + packageName + " 的结果不会随文件变化更新: " + e.getMessage());
+            }
+            return projectAnalyzer;
+        });
+        Future<ProjectAnalyzer> existing = projectAnalyzers.putIfAbsent(packageName, task);
+        if (existing == null) {
+            task.run();
+            existing = task;
+        }
+        try {
+            return existing.get();
+        } catch (ExecutionException e) {
+            projectAnalyzers.remove(packageName, existing);
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("无法分析包 " + packageName, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待包 " + packageName + " 的分析时被中断", e);
+        }
+    }
+
+    private void handleQuery(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                respond(exchange, 405, "只支持GET请求\n");
+                return;
+            }
+            Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+            String query = parameters.getOrDefault("q", "").replaceAll("\\s", "");
+
+            MethodCallAnalyzer.userInputFormat input;
+            try {
+                input = MethodCallAnalyzer.resolveUserInput(query);
+            } catch (UserInputException e) {
+                respond(exchange, 400, e.getMessage() + "\n");
+                return;
+            }
+
+            ProjectAnalyzer projectAnalyzer = getProjectAnalyzer(input.packageName());
+            // 有重载时用参数类型或overload参数代替交互选择；选出的方法直接交给查询，两次调用之间文件变化时返回404而不是换成另一个重载
+            String parameterTypes = input.parameterTypes();
+            MethodInfo chosenMethod = null;
+            if (parameterTypes == null) {
+                Map.Entry<Boolean, List<MethodInfo>> functionOverloadChecked =
+                        projectAnalyzer.checkFunctionOverload(input.methodName(), input.className());
+                if (functionOverloadChecked == null) {
+                    respond(exchange, 404, "没有找到方法 " + input.className() + "." + input.methodName() + "\n");
+                    return;
+                }
+                List<MethodInfo> reloadMethods = functionOverloadChecked.getValue();
+                chosenMethod = reloadMethods.get(0);
+                if (functionOverloadChecked.getKey()) {
+                    int choice;
+                    try {
+                        choice = Integer.parseInt(parameters.getOrDefault("overload", "-1"));
+                    } catch (NumberFormatException e) {
+                        choice = -1;
+                    }
+                    if (choice < 0 || choice >= reloadMethods.size()) {
+                        respond(exchange, 300, "请用overload参数选择一个重载方法 (0-" + (reloadMethods.size() - 1) + ")，或在方法名后写出参数类型:\n"
+                                + MethodCallAnalyzer.formatReloadMethodParams(reloadMethods));
+                        return;
+                    }
+                    chosenMethod = reloadMethods.get(choice);
+                }
+                parameterTypes = OverloadIndex.parameterKey(chosenMethod);
+            }
+
+            String result = chosenMethod != null
+                    ? projectAnalyzer.querySpecificMethod(chosenMethod, input.className(), input.depth())
+                    : projectAnalyzer.querySpecificMethod(input.methodName(), input.className(), input.depth(), parameterTypes);
+            if (result == null) {
+                // 参数类型与所有重载都不符，或者两次查询之间文件发生了变化，方法已经被删除
+                respond(exchange, 404, "没有找到方法 " + input.className() + "." + input.methodName()
+                        + (parameterTypes == null ? "" : parameterTypes) + "\n");
+            } else {
+                respond(exchange, 200, result);
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            respond(exchange, 500, e + "\n");
+        }
+    }
+
+    private void handleReach(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                respond(exchange, 405, "只支持GET请求\n");
+                return;
+            }
+            Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+            MethodCallAnalyzer.userInputFormat from;
+            MethodCallAnalyzer.userInputFormat to;
+            try {
+                // 与/query的q参数格式相同，只是没有深度
+                from = MethodCallAnalyzer.resolveUserInput(parameters.getOrDefault("from", "").replaceAll("\\s", "") + ",1");
+                to = MethodCallAnalyzer.resolveUserInput(parameters.getOrDefault("to", "").replaceAll("\\s", "") + ",1");
+            } catch (UserInputException e) {
+                respond(exchange, 400, e.getMessage() + "\n");
+                return;
+            }
+            if (!from.packageName().equals(to.packageName())) {
+                respond(exchange, 400, "from和to必须在同一个包中\n");
+                return;
+            }
+
+            ProjectAnalyzer projectAnalyzer = getProjectAnalyzer(from.packageName());
+            // 两端各选出一个方法再交给查询，两次调用之间文件发生变化时返回404而不是换成另一个重载
+            List<MethodInfo> chosen = new ArrayList<>();
+            for (MethodCallAnalyzer.userInputFormat input : List.of(from, to)) {
+                Map.Entry<Boolean, List<MethodInfo>> functionOverloadChecked =
+                        projectAnalyzer.checkFunctionOverload(input.methodName(), input.className());
+                if (input.parameterTypes() == null && functionOverloadChecked != null && functionOverloadChecked.getKey()) {
+                    respond(exchange, 300, "方法 " + input.className() + "." + input.methodName() + " 有重载，请在方法名后写出参数类型:\n"
+                            + MethodCallAnalyzer.formatReloadMethodParams(functionOverloadChecked.getValue()));
+                    return;
+                }
+                chosen.add(chooseMethod(projectAnalyzer, input, functionOverloadChecked));
+            }
+
+            Integer distance = projectAnalyzer.callDistance(chosen.get(0), chosen.get(1));
+            if (distance == null) {
+                respond(exchange, 404, "没有找到方法 " + from.className() + "." + from.methodName()
+                        + " 或 " + to.className() + "." + to.methodName() + "\n");
+            } else {
+                respond(exchange, 200, "reachable: " + (distance >= 0) + "\ndistance: " + distance + "\n");
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            respond(exchange, 500, e + "\n");
+        }
+    }
+
+    private void handleCycles(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                respond(exchange, 405, "只支持GET请求\n");
+                return;
+            }
+            String packageName = parseQuery(exchange.getRequestURI().getRawQuery()).getOrDefault("package", "").trim();
+            if (packageName.isEmpty()) {
+                respond(exchange, 400, "缺少package参数\n");
+                return;
+            }
+            String groups = getProjectAnalyzer(packageName).formatRecursionGroups();
+            respond(exchange, 200, groups.isEmpty() ? "[NONE]\n" : groups);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            respond(exchange, 500, e + "\n");
+        }
+    }
+
+    private void handleOrigins(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                respond(exchange, 405, "只支持GET请求\n");
+                return;
+            }
+            Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+            String parameter = parameters.getOrDefault("param", "").trim();
+            MethodCallAnalyzer.userInputFormat input;
+            try {
+                input = MethodCallAnalyzer.resolveUserInput(parameters.getOrDefault("q", "").replaceAll("\\s", ""));
+            } catch (UserInputException e) {
+                respond(exchange, 400, e.getMessage() + "\n");
+                return;
+            }
+            if (parameter.isEmpty()) {
+                respond(exchange, 400, "缺少param参数\n");
+                return;
+            }
+
+            ProjectAnalyzer projectAnalyzer = getProjectAnalyzer(input.packageName());
+            Map.Entry<Boolean, List<MethodInfo>> functionOverloadChecked =
+                    projectAnalyzer.checkFunctionOverload(input.methodName(), input.className());
+            if (input.parameterTypes() == null && functionOverloadChecked != null && functionOverloadChecked.getKey()) {
+                respond(exchange, 300, "方法 " + input.className() + "." + input.methodName() + " 有重载，请在方法名后写出参数类型:\n"
+                        + MethodCallAnalyzer.formatReloadMethodParams(functionOverloadChecked.getValue()));
+                return;
+            }
+
+            MethodInfo chosenMethod = chooseMethod(projectAnalyzer, input, functionOverloadChecked);
+            String origins = chosenMethod == null ? null : projectAnalyzer.traceParameterOrigins(chosenMethod, parameter, input.depth());
+            if (origins == null) {
+                respond(exchange, 404, "没有找到方法 " + input.className() + "." + input.methodName() + " 或形参 " + parameter + "\n");
+            } else {
+                respond(exchange, 200, origins.isEmpty() ? "[NONE]\n" : origins);
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            respond(exchange, 500, e + "\n");
+        }
+    }
+
+    // 没有重载或写了参数类型时选出的方法，找不到时返回null；选出的方法交给查询，查询时会检查它是否已经被替换
+    private static MethodInfo chooseMethod(ProjectAnalyzer projectAnalyzer, MethodCallAnalyzer.userInputFormat input,
+                                           Map.Entry<Boolean, List<MethodInfo>> functionOverloadChecked) {
+        if (input.parameterTypes() != null) {
+            return projectAnalyzer.findMethod(input.methodName(), input.className(), input.parameterTypes());
+        }
+        return functionOverloadChecked == null ? null : functionOverloadChecked.getValue().get(0);
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> parameters = new HashMap<>();
+        if (rawQuery == null) {
+            return parameters;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                parameters.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        server.stop(0);
+        executor.shutdownNow();
+        synchronized (watchers) {
+            for (SourceWatcher watcher : watchers) {
+                watcher.close();
+            }
+        }
+    }
+}
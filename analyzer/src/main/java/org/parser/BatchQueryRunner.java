@@ -0,0 +1,136 @@
+package org.parser;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+/*
+批量查询：从文件或标准输入逐行读取“方法名, 包名.类名, 深度”格式的查询，不需要交互。
+每个包只分析一次，冻结的调用关系图建好后，查询在线程池中并发执行，只读调用关系图，不加锁；
+每个查询完成后立即输出它的结果，输出顺序是完成的顺序，每个结果块以“Input:”开头，块内的行不会和其他查询交错。
+重载方法不能交互选择，方法名后面写了参数类型时只输出这个重载，否则每个重载各输出一个结果块，输入行后面附上参数类型。
+空行和以#开头的行被忽略。
+ */
+public class BatchQueryRunner {
+    // 一个包的分析结果和按“类名#方法名”索引的方法
+    private record PackageGraph(CallGraphStore callGraph, OverloadIndex overloadIndex) {
+    }
+
+    private final PrintStream out;
+    private final int threads;
+    private final Function<String, ProjectAnalyzer> analyzers; // 按包名创建分析器
+    private final Map<String, Future<PackageGraph>> packageGraphs = new ConcurrentHashMap<>();
+
+    public BatchQueryRunner(PrintStream out, int threads) {
+        this(out, threads, ProjectAnalyzer::new);
+    }
+
+    // 多模块分析时所有包共用一个分析，analyzers对每个包名返回同一个结果即可
+    public BatchQueryRunner(PrintStream out, int threads, Function<String, ProjectAnalyzer> analyzers) {
+        this.out = out;
+        this.threads = threads;
+        this.analyzers = analyzers;
+    }
+
+    // 读完所有查询并等待全部完成后返回，返回出错的查询个数
+    public int run(BufferedReader reader) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Boolean>> results = new ArrayList<>();
+        int failed = 0;
+        try {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                String query = line.replaceAll("\\s", "");
+                if (query.isEmpty() || query.startsWith("#")) {
+                    continue;
+                }
+                int currentLine = lineNumber;
+                results.add(pool.submit(() -> answer(currentLine, query)));
+            }
+            for (Future<Boolean> result : results) {
+                try {
+                    if (!result.get()) {
+                        failed++;
+                    }
+                } catch (ExecutionException e) {
+                    failed++;
+                    e.getCause().printStackTrace();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.shutdownNow();
+        }
+        return failed;
+    }
+
+    // 回答一个查询并输出，查询有错误时输出错误信息并返回false
+    private boolean answer(int lineNumber, String query) throws InterruptedException {
+        MethodCallAnalyzer.userInputFormat input;
+        try {
+            input = MethodCallAnalyzer.resolveUserInput(query);
+        } catch (UserInputException e) {
+            emit("第" + lineNumber + "行 " + query + ": " + e.getMessage() + "\n");
+            return false;
+        }
+
+        PackageGraph packageGraph;
+        try {
+            packageGraph = getPackageGraph(input.packageName());
+        } catch (ExecutionException e) {
+            emit("第" + lineNumber + "行 " + query + ": 无法分析包 " + input.packageName() + ": " + e.getCause() + "\n");
+            return false;
+        }
+        List<MethodInfo> methods;
+        if (input.parameterTypes() != null) {
+            MethodInfo method = packageGraph.overloadIndex().find(input.className(), input.methodName(), input.parameterTypes());
+            methods = method == null ? List.of() : List.of(method);
+        } else {
+            methods = packageGraph.overloadIndex().getOverloads(input.className(), input.methodName());
+        }
+        if (methods.isEmpty()) {
+            emit("第" + lineNumber + "行 " + query + ": 没有找到方法 " + input.className() + "." + input.methodName()
+                    + (input.parameterTypes() == null ? "" : input.parameterTypes()) + "\n");
+            return false;
+        }
+
+        StringBuilder block = new StringBuilder();
+        for (MethodInfo method : methods) {
+            String label = method.getMethodName() + ", " + input.className();
+            if (methods.size() > 1) {
+                label += " (" + String.join(", ", method.getParameterTypes()) + ")";
+            }
+            block.append(ProjectAnalyzer.formatQueryResult(packageGraph.callGraph(), method, label, input.depth()));
+        }
+        emit(block.toString());
+        return true;
+    }
+
+    // 同一个包只分析一次，其他查询同一个包的线程等待分析完成
+    private PackageGraph getPackageGraph(String packageName) throws ExecutionException, InterruptedException {
+        FutureTask<PackageGraph> task = new FutureTask<>(() -> {
+            ProjectAnalyzer projectAnalyzer = analyzers.apply(packageName);
+            // 和交互查询一样只按类名(不含包名)匹配，包中不同子包的同名类都会被查到
+            return new PackageGraph(projectAnalyzer.getCallGraph(), projectAnalyzer.getOverloadIndex());
+        });
+        Future<PackageGraph> existing = packageGraphs.putIfAbsent(packageName, task);
+        if (existing == null) {
+            task.run();
+            existing = task;
+        }
+        return existing.get();
+    }
+
+    private void emit(String block) {
+        synchronized (out) {
+            out.print(block);
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package org.parser;
+
+import java.util.function.IntConsumer;
+
+// 以整数id表示方法的调用关系图，供CallTraversal遍历
+public interface CallAdjacency {
+    // 遍历方向：沿被调用者(此方法调用了谁)或沿调用者(谁调用了此方法)
+    enum Direction { CALLEES, CALLERS }
+
+    int methodCount();
+
+    // 对methodId的每一个相邻方法调用action
+    void forEachNeighbor(int methodId, Direction direction, IntConsumer action);
+}
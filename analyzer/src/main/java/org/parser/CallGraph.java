@@ -1,26 +1,82 @@
 package org.parser;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.function.Supplier;
 
+/*
+数据流图(def-use图)：节点是CallNode，边是值的流动方向。
+节点按NodeKey放在哈希表中，建图时对同一个位置的重复查找只是一次哈希查找；另外按名称索引，按变量名查询不需要遍历所有节点。
+由DataFlowBuilder在一次遍历中建立，见ProjectAnalyzer.findAllUsedExpr。
+ */
 public class CallGraph {
-    private List<CallNode> nodes;
+    // 节点的键：种类、所在方法、所在类、名称和位置；形参的位置为(方法开始的行, 参数下标)，返回值为(方法开始的行, -1)
+    public record NodeKey(CallNode.Kind kind, int methodId, String className, String name, int line, int column) {
+    }
+
+    private final Map<NodeKey, CallNode> nodes = new LinkedHashMap<>();
+    private final Map<String, List<CallNode>> nodesByName = new HashMap<>();
+    private int edgeCount;
 
-    public CallGraph() {
-        this.nodes = new ArrayList<>();
+    // 查找键为key的节点，没有时用factory创建
+    public CallNode getOrCreate(NodeKey key, Supplier<CallNode> factory) {
+        CallNode node = nodes.get(key);
+        if (node == null) {
+            node = factory.get();
+            nodes.put(key, node);
+            nodesByName.computeIfAbsent(node.getName(), name -> new ArrayList<>()).add(node);
+        }
+        return node;
     }
 
-    public List<CallNode> getNodes() {
-        return nodes;
+    // 键为key的节点，没有时返回null
+    public CallNode getNode(NodeKey key) {
+        return nodes.get(key);
     }
 
-    public void addNode(CallNode node) {
-        nodes.add(node);
+    public Collection<CallNode> getNodes() {
+        return Collections.unmodifiableCollection(nodes.values());
     }
 
-    // 添加方法来添加有向边
-    public void addDirectedEdge(CallNode source, CallNode destination) {
-        source.addNextNode(destination);
+    // 名称为name的所有节点(变量名、参数名、成员变量名，或者字面量和表达式的源代码)，按创建的顺序排列
+    public List<CallNode> findNodes(String name) {
+        return nodesByName.getOrDefault(name, List.of());
+    }
+
+    // 添加方法来添加有向边，值从source流向destination；边已经存在时返回false
+    public boolean addDirectedEdge(CallNode source, CallNode destination) {
+        if (source.addNextNode(destination)) {
+            edgeCount++;
+            return true;
+        }
+        return false;
+    }
+
+    public int nodeCount() {
+        return nodes.size();
     }
-}
 
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    // 从node出发沿边(forward为true时顺着值的流向，否则逆着)能到达的所有节点，不包括node本身，按到达的顺序排列
+    public Set<CallNode> reachableFrom(CallNode node, boolean forward) {
+        Set<CallNode> reached = new LinkedHashSet<>();
+        Deque<CallNode> pending = new ArrayDeque<>();
+        pending.add(node);
+        while (!pending.isEmpty()) {
+            CallNode current = pending.poll();
+            for (CallNode neighbor : forward ? current.getNextNodes() : current.getPrevNodes()) {
+                if (neighbor != node && reached.add(neighbor)) {
+                    pending.add(neighbor);
+                }
+            }
+        }
+        return reached;
+    }
+
+    @Override
+    public String toString() {
+        return "数据流图: " + nodes.size() + "个节点, " + edgeCount + "条边";
+    }
+}
@@ -0,0 +1,159 @@
+package org.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+调用关系图的强连通分量缩点：互相递归(直接或间接)的方法属于同一个分量，称为一个递归组，其余方法各自是一个分量。
+用Tarjan算法求分量，递归改为显式栈，深的调用链不会栈溢出。
+Tarjan算法完成分量的顺序是缩点后的图的逆拓扑序：分量的编号越小越靠近调用链的末端，
+沿被调用者方向遍历时按编号从大到小处理就是拓扑序，沿调用者方向则按编号从小到大。
+分量之间的边就是缩点后的有向无环图，遍历时每个递归组作为一个整体只经过一次。
+ */
+public class CallGraphCondensation {
+    private final int[] componentOf;
+    // 分量的成员按CSR格式存放：分量c的成员为members[memberOffsets[c]..memberOffsets[c+1])，按方法id排列
+    private final int[] memberOffsets;
+    private final int[] members;
+    private final boolean[] recursive;
+
+    private CallGraphCondensation(int[] componentOf, int[] memberOffsets, int[] members, boolean[] recursive) {
+        this.componentOf = componentOf;
+        this.memberOffsets = memberOffsets;
+        this.members = members;
+        this.recursive = recursive;
+    }
+
+    public static CallGraphCondensation build(CallGraphStore graph) {
+        int methodCount = graph.methodCount();
+        int[] index = new int[methodCount];
+        Arrays.fill(index, -1);
+        int[] lowLink = new int[methodCount];
+        int[] componentOf = new int[methodCount];
+        boolean[] onStack = new boolean[methodCount];
+        int[] stack = new int[methodCount];
+        int stackSize = 0;
+        // 显式的深度优先遍历栈：方法id和它下一个要看的被调用者的下标
+        int[] callStack = new int[methodCount];
+        int[] nextNeighbor = new int[methodCount];
+        int nextIndex = 0;
+        int componentCount = 0;
+
+        for (int root = 0; root < methodCount; root++) {
+            if (index[root] >= 0) {
+                continue;
+            }
+            int depth = 0;
+            callStack[0] = root;
+            nextNeighbor[0] = 0;
+            index[root] = lowLink[root] = nextIndex++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+            while (depth >= 0) {
+                int methodId = callStack[depth];
+                if (nextNeighbor[depth] < graph.degree(methodId, CallAdjacency.Direction.CALLEES)) {
+                    int callee = graph.neighbor(methodId, CallAdjacency.Direction.CALLEES, nextNeighbor[depth]++);
+                    if (index[callee] < 0) {
+                        index[callee] = lowLink[callee] = nextIndex++;
+                        stack[stackSize++] = callee;
+                        onStack[callee] = true;
+                        depth++;
+                        callStack[depth] = callee;
+                        nextNeighbor[depth] = 0;
+                    } else if (onStack[callee]) {
+                        lowLink[methodId] = Math.min(lowLink[methodId], index[callee]);
+                    }
+                    continue;
+                }
+                // methodId的被调用者都已处理完，它是分量的根时弹出整个分量
+                if (lowLink[methodId] == index[methodId]) {
+                    int member;
+                    do {
+                        member = stack[--stackSize];
+                        onStack[member] = false;
+                        componentOf[member] = componentCount;
+                    } while (member != methodId);
+                    componentCount++;
+                }
+                depth--;
+                if (depth >= 0) {
+                    int caller = callStack[depth];
+                    lowLink[caller] = Math.min(lowLink[caller], lowLink[methodId]);
+                }
+            }
+        }
+
+        int[] memberOffsets = new int[componentCount + 1];
+        for (int methodId = 0; methodId < methodCount; methodId++) {
+            memberOffsets[componentOf[methodId] + 1]++;
+        }
+        for (int component = 0; component < componentCount; component++) {
+            memberOffsets[component + 1] += memberOffsets[component];
+        }
+        int[] members = new int[methodCount];
+        int[] fill = Arrays.copyOf(memberOffsets, componentCount);
+        for (int methodId = 0; methodId < methodCount; methodId++) {
+            members[fill[componentOf[methodId]]++] = methodId;
+        }
+
+        // 多于一个方法的分量是递归组；只有一个方法的分量在方法直接调用自己时也是
+        boolean[] recursive = new boolean[componentCount];
+        for (int methodId = 0; methodId < methodCount; methodId++) {
+            int component = componentOf[methodId];
+            if (memberOffsets[component + 1] - memberOffsets[component] > 1) {
+                recursive[component] = true;
+            } else {
+                int self = methodId;
+                graph.forEachNeighbor(methodId, CallAdjacency.Direction.CALLEES, callee -> {
+                    if (callee == self) {
+                        recursive[component] = true;
+                    }
+                });
+            }
+        }
+        return new CallGraphCondensation(componentOf, memberOffsets, members, recursive);
+    }
+
+    public int componentCount() {
+        return recursive.length;
+    }
+
+    // 方法所在分量的编号
+    public int componentOf(int methodId) {
+        return componentOf[methodId];
+    }
+
+    // 分量中的方法id，按id排列
+    public int[] members(int component) {
+        return Arrays.copyOfRange(members, memberOffsets[component], memberOffsets[component + 1]);
+    }
+
+    public int size(int component) {
+        return memberOffsets[component + 1] - memberOffsets[component];
+    }
+
+    // 分量是否为递归组(其中的方法能直接或间接调用自己)
+    public boolean isRecursive(int component) {
+        return recursive[component];
+    }
+
+    // 所有递归组的编号，方法多的在前
+    public List<Integer> recursiveComponents() {
+        List<Integer> result = new ArrayList<>();
+        for (int component = 0; component < recursive.length; component++) {
+            if (recursive[component]) {
+                result.add(component);
+            }
+        }
+        result.sort((a, b) -> size(a) != size(b) ? Integer.compare(size(b), size(a)) : Integer.compare(a, b));
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        List<Integer> groups = recursiveComponents();
+        return "调用关系缩点: " + componentOf.length + "个方法, " + componentCount() + "个强连通分量, "
+                + groups.size() + "个递归组" + (groups.isEmpty() ? "" : "(最大的有" + size(groups.get(0)) + "个方法)");
+    }
+}
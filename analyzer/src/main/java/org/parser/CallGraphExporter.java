@@ -0,0 +1,79 @@
+package org.parser;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.BitSet;
+
+/*
+把一个方法depth范围内的调用者和被调用者边遍历边写到CallGraphSink：先沿调用者方向遍历，再沿被调用者方向遍历。
+两个方向都到达的方法只输出一次；同一条边只输出一次(被调用者方向跳过调用者方向展开过的方法收到的边)。
+除了几个按方法数分配的位图外不保存任何结果，输出再大内存也不变。
+ */
+public class CallGraphExporter {
+    private final CallGraphStore callGraph;
+
+    public CallGraphExporter(CallGraphStore callGraph) {
+        this.callGraph = callGraph;
+    }
+
+    public void export(int sourceId, int depth, CallGraphSink sink) throws IOException {
+        int methodCount = callGraph.methodCount();
+        BitSet emitted = new BitSet(methodCount);
+        BitSet callerExpanded = new BitSet(methodCount); // 调用者方向展开过的方法，它们收到的边都已经输出
+        CallTraversal traversal = new CallTraversal(callGraph);
+
+        try {
+            sink.begin(callGraph, sourceId);
+            traversal.traverse(sourceId, depth, CallAdjacency.Direction.CALLERS, new CallTraversal.Visitor() {
+                @Override
+                public void node(int methodId, int nodeDepth) {
+                    if (nodeDepth < depth) {
+                        callerExpanded.set(methodId);
+                    }
+                    emitNode(sink, emitted, methodId, nodeDepth, nodeDepth == 0 ? null : CallAdjacency.Direction.CALLERS);
+                }
+
+                @Override
+                public void edge(int fromId, int toId) {
+                    emitEdge(sink, toId, fromId);
+                }
+            });
+            traversal.traverse(sourceId, depth, CallAdjacency.Direction.CALLEES, new CallTraversal.Visitor() {
+                @Override
+                public void node(int methodId, int nodeDepth) {
+                    emitNode(sink, emitted, methodId, nodeDepth, nodeDepth == 0 ? null : CallAdjacency.Direction.CALLEES);
+                }
+
+                @Override
+                public void edge(int fromId, int toId) {
+                    if (!callerExpanded.get(toId)) {
+                        emitEdge(sink, fromId, toId);
+                    }
+                }
+            });
+            sink.end();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void emitNode(CallGraphSink sink, BitSet emitted, int methodId, int depth, CallAdjacency.Direction direction) {
+        if (emitted.get(methodId)) {
+            return;
+        }
+        emitted.set(methodId);
+        try {
+            sink.node(methodId, depth, direction);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void emitEdge(CallGraphSink sink, int callerId, int calleeId) {
+        try {
+            sink.edge(callerId, calleeId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package org.parser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+/*
+调用关系的流式输出：CallGraphExporter在遍历过程中每到达一个方法、每经过一条边就调用一次，
+实现类立即把它写出去，不在内存中拼接整个结果。
+ */
+public interface CallGraphSink extends Closeable {
+    // 开始输出以sourceId为起点的调用关系，方法名、类名从callGraph中取
+    void begin(CallGraphStore callGraph, int sourceId) throws IOException;
+
+    // 一个方法，depth为距起点的最短深度(起点为0)，direction表示它是调用者还是被调用者，起点为null
+    void node(int methodId, int depth, CallAdjacency.Direction direction) throws IOException;
+
+    // 一条调用关系：callerId调用了calleeId
+    void edge(int callerId, int calleeId) throws IOException;
+
+    // 输出结尾，之后还要调用close
+    void end() throws IOException;
+
+    // 按格式名创建：jsonl、dot或graphml
+    static CallGraphSink create(String format, WritableByteChannel channel) {
+        return switch (format) {
+            case "jsonl" -> new JsonLinesSink(channel);
+            case "dot" -> new DotSink(channel);
+            case "graphml" -> new GraphMLSink(channel);
+            default -> throw new IllegalArgumentException("不支持的输出格式: " + format + "(可选jsonl、dot、graphml)");
+        };
+    }
+}
@@ -0,0 +1,139 @@
+package org.parser;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/*
+冻结的调用关系图，压缩稀疏行(CSR)格式：
+被调用者方向和调用者方向各用一个offsets数组和一个targets数组表示，方法id的相邻方法是targets[offsets[id]..offsets[id+1])。
+方法名、类名等字符串放在全项目共用的符号表(SymbolTable)中，每个方法只保存符号编号，输出结果时才取回字符串。
+建好之后不再引用MethodInfo和AST，查询只读这些数组，内存占用只和方法数、边数有关；对象不可变，可以被多个线程同时查询。
+强连通分量缩点(递归组)在第一次需要时计算一次，之后随图一起保留。
+ */
+public class CallGraphStore implements CallAdjacency {
+    private final int methodCount;
+    private final int[] calleeOffsets;
+    private final int[] calleeTargets;
+    private final int[] callerOffsets;
+    private final int[] callerTargets;
+
+    // 符号表
+    private final SymbolTable symbols;
+    private final int[] methodNameSymbols;
+    private final int[] classNameSymbols; // 包名.类名
+    // 强连通分量缩点，第一次调用getCondensation时计算
+    private volatile CallGraphCondensation condensation;
+
+    private CallGraphStore(int methodCount, int[] calleeOffsets, int[] calleeTargets, int[] callerOffsets, int[] callerTargets,
+                           SymbolTable symbols, int[] methodNameSymbols, int[] classNameSymbols) {
+        this.methodCount = methodCount;
+        this.calleeOffsets = calleeOffsets;
+        this.calleeTargets = calleeTargets;
+        this.callerOffsets = callerOffsets;
+        this.callerTargets = callerTargets;
+        this.symbols = symbols;
+        this.methodNameSymbols = methodNameSymbols;
+        this.classNameSymbols = classNameSymbols;
+    }
+
+    // 从已经链接好的方法构建，方法的id必须等于它在methods中的下标
+    public static CallGraphStore build(List<MethodInfo> methods) {
+        int methodCount = methods.size();
+
+        int[] methodNameSymbols = new int[methodCount];
+        int[] classNameSymbols = new int[methodCount];
+        for (int id = 0; id < methodCount; id++) {
+            methodNameSymbols[id] = methods.get(id).getMethodNameSymbol();
+            classNameSymbols[id] = methods.get(id).getQualifiedClassNameSymbol();
+        }
+
+        // 被调用者方向：MethodInfo中的集合已经去重，直接按顺序写入
+        int[] calleeOffsets = new int[methodCount + 1];
+        for (int id = 0; id < methodCount; id++) {
+            calleeOffsets[id + 1] = calleeOffsets[id] + methods.get(id).getCalledMethods().size();
+        }
+        int[] calleeTargets = new int[calleeOffsets[methodCount]];
+        for (int id = 0; id < methodCount; id++) {
+            int position = calleeOffsets[id];
+            for (MethodInfo callee : methods.get(id).getCalledMethods()) {
+                calleeTargets[position++] = callee.getId();
+            }
+        }
+
+        // 调用者方向由被调用者方向转置得到，保证两个方向的边完全一致
+        int[] callerOffsets = new int[methodCount + 1];
+        for (int target : calleeTargets) {
+            callerOffsets[target + 1]++;
+        }
+        for (int id = 0; id < methodCount; id++) {
+            callerOffsets[id + 1] += callerOffsets[id];
+        }
+        int[] callerTargets = new int[calleeTargets.length];
+        int[] fill = Arrays.copyOf(callerOffsets, methodCount);
+        for (int id = 0; id < methodCount; id++) {
+            for (int i = calleeOffsets[id]; i < calleeOffsets[id + 1]; i++) {
+                callerTargets[fill[calleeTargets[i]]++] = id;
+            }
+        }
+
+        return new CallGraphStore(methodCount, calleeOffsets, calleeTargets, callerOffsets, callerTargets,
+                GlobalVariables.getSymbolTable(), methodNameSymbols, classNameSymbols);
+    }
+
+    @Override
+    public int methodCount() {
+        return methodCount;
+    }
+
+    @Override
+    public void forEachNeighbor(int methodId, Direction direction, IntConsumer action) {
+        int[] offsets = direction == Direction.CALLEES ? calleeOffsets : callerOffsets;
+        int[] targets = direction == Direction.CALLEES ? calleeTargets : callerTargets;
+        for (int i = offsets[methodId]; i < offsets[methodId + 1]; i++) {
+            action.accept(targets[i]);
+        }
+    }
+
+    public int degree(int methodId, Direction direction) {
+        int[] offsets = direction == Direction.CALLEES ? calleeOffsets : callerOffsets;
+        return offsets[methodId + 1] - offsets[methodId];
+    }
+
+    // methodId的第index个相邻方法，index小于degree(methodId, direction)
+    public int neighbor(int methodId, Direction direction, int index) {
+        int[] offsets = direction == Direction.CALLEES ? calleeOffsets : callerOffsets;
+        int[] targets = direction == Direction.CALLEES ? calleeTargets : callerTargets;
+        return targets[offsets[methodId] + index];
+    }
+
+    public int edgeCount() {
+        return calleeTargets.length;
+    }
+
+    public String getMethodName(int methodId) {
+        return symbols.name(methodNameSymbols[methodId]);
+    }
+
+    // 包名.类名，默认包中的类只有类名
+    public String getQualifiedClassName(int methodId) {
+        return symbols.name(classNameSymbols[methodId]);
+    }
+
+    // 调用关系图的强连通分量缩点，多个线程同时第一次调用时可能各算一次，结果相同
+    public CallGraphCondensation getCondensation() {
+        CallGraphCondensation result = condensation;
+        if (result == null) {
+            result = CallGraphCondensation.build(this);
+            condensation = result;
+        }
+        return result;
+    }
+
+    public int getMethodNameSymbol(int methodId) {
+        return methodNameSymbols[methodId];
+    }
+
+    public int getClassNameSymbol(int methodId) {
+        return classNameSymbols[methodId];
+    }
+}
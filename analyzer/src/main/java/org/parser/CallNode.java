@@ -1,38 +1,82 @@
 package org.parser;
 
-import java.util.List;
-import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 
+/*
+数据流图中的一个节点：某个位置上的一个值，例如一次变量声明、一次赋值、方法的一个形参、调用点的一个实参。
+边表示值的流动方向，nextNodes是这个值流向的节点，prevNodes是流入这个值的节点。
+节点由CallGraph按NodeKey创建和查找，同一个位置上的同一种值只有一个节点。
+ */
 public class CallNode {
-    private String name;
-    private String parameterClass;
-    private int parameterLine;
-
-    private int scopeStartLine;
+    // 节点表示的值的种类
+    public enum Kind {
+        DECLARATION,  // 局部变量声明(包括for-each的循环变量和lambda参数)
+        ASSIGNMENT,   // 对局部变量的一次赋值
+        PARAMETER,    // 方法的形参
+        ARGUMENT,     // 调用点的一个实参
+        RETURN,       // 方法的返回值，方法中所有return语句流入同一个节点
+        CALL_RESULT,  // 调用点得到的返回值
+        FIELD,        // 类的成员变量，不区分赋值的先后
+        LITERAL,      // 字面量
+        EXPRESSION    // 其他产生值的表达式，例如new、访问其他对象的成员变量
+    }
 
-    private int scopeEndLine;
-    private int scopeType;
+    private final Kind kind;
+    private final String name;
+    private final String parameterClass;
+    private final int parameterLine;
+    private final int methodId; // 所在方法在ProjectAnalyzer.methodInfos中的下标，不在项目方法中(成员变量、构造函数等)时为-1
 
-    public List<CallNode> nextNodes; // 用于表示下一步连接的节点列表
-    public List<CallNode> prevNodes; // 用于表示下一步连接的节点列表
+    private final Set<CallNode> nextNodes = new LinkedHashSet<>(); // 这个值流向的节点
+    private final Set<CallNode> prevNodes = new LinkedHashSet<>(); // 流入这个值的节点
 
-    public CallNode(String name, String parameterClass, int parameterLine) {
+    public CallNode(Kind kind, String name, String parameterClass, int parameterLine, int methodId) {
+        this.kind = kind;
         this.name = name;
         this.parameterClass = parameterClass;
         this.parameterLine = parameterLine;
+        this.methodId = methodId;
     }
 
-    // 添加方法来添加下一步的连接，也就是这个Node会去往何处
-    public void addNextNode(CallNode nextNode) {
-        if (nextNodes == null) {
-            nextNodes = new ArrayList<>();
-            if (!nextNodes.contains(nextNode)) {
-                this.nextNodes.add(nextNode);   // 这个的下一个是 nextNode
-            }
+    // 添加方法来添加下一步的连接，也就是这个Node会去往何处；边已经存在时返回false
+    public boolean addNextNode(CallNode nextNode) {
+        if (!nextNodes.add(nextNode)) {
+            return false;
         }
+        nextNode.prevNodes.add(this);
+        return true;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getParameterClass() {
+        return parameterClass;
     }
 
+    public int getParameterLine() {
+        return parameterLine;
+    }
+
+    public int getMethodId() {
+        return methodId;
+    }
+
+    public Set<CallNode> getNextNodes() {
+        return Collections.unmodifiableSet(nextNodes);
+    }
+
+    public Set<CallNode> getPrevNodes() {
+        return Collections.unmodifiableSet(prevNodes);
+    }
 
     public String getNodeInfo() {
         return name + " in " + parameterClass + ":" + Integer.toString(parameterLine);
@@ -0,0 +1,41 @@
+package org.parser;
+
+import java.util.Arrays;
+
+/*
+解析调用目标之前的名称过滤：按项目中方法的(方法名符号, 参数个数)建立集合，只看调用点的方法名和实参个数就能判断它是否可能调用项目内的方法。
+System.out.println、list.add等调用项目外方法的调用点大多数在这里就被排除，不需要交给符号解析器，也不会抛出解析失败的异常。
+可变参数方法和从分析缓存恢复的方法(没有AST，不知道参数是否可变)不限参数个数，只按方法名匹配。
+方法在监视模式下会被删除和重新加入，所以按出现次数计数，同名同参数个数的方法全部删除后才从集合中去掉。
+计数按方法名符号存放在SymbolArray中，每个方法名一个数组：第0项是不限参数个数的方法数，第1+n项是n个参数的方法数。
+多模块分析时各模块的线程同时加入和查询：查询不加锁；加入和删除加锁，并且复制出新的计数数组再放回，查询不会看到改了一半的数组。
+ */
+public class CallPrefilter {
+    private final SymbolArray<int[]> countsByName = new SymbolArray<>();
+
+    public synchronized void add(MethodInfo method) {
+        update(method, 1);
+    }
+
+    public synchronized void remove(MethodInfo method) {
+        update(method, -1);
+    }
+
+    private void update(MethodInfo method, int delta) {
+        int slot = method.getFixedArity() + 1; // 不限参数个数时为0
+        int[] counts = countsByName.get(method.getMethodNameSymbol());
+        if (counts == null && delta < 0) {
+            return;
+        }
+        int[] updated = counts == null ? new int[slot + 1]
+                : Arrays.copyOf(counts, Math.max(counts.length, slot + 1));
+        updated[slot] = Math.max(0, updated[slot] + delta);
+        countsByName.put(method.getMethodNameSymbol(), updated);
+    }
+
+    // 返回false时这个调用一定不会调用项目内的方法；返回true时仍要解析才能确定。nameSymbol是方法名在符号表中的编号
+    public boolean mayTarget(int nameSymbol, int argumentCount) {
+        int[] counts = countsByName.get(nameSymbol);
+        return counts != null && (counts[0] > 0 || argumentCount + 1 < counts.length && counts[argumentCount + 1] > 0);
+    }
+}
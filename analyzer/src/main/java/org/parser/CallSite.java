@@ -0,0 +1,25 @@
+package org.parser;
+
+import java.io.Serializable;
+import java.util.List;
+
+/*
+方法中的一个调用点：被调用的项目内方法的签名和方法名，调用时传入的实参，以及调用表达式结束的位置(行、列)
+用结束位置是因为链式调用a.b().c()中的两个调用开始于同一个位置，而结束位置各不相同
+方法名用来判断别的文件新增同名的重写或重载方法时，这个已经链接的调用点是否可能改为调用新方法
+targetSymbol和targetNameSymbol是签名和方法名在符号表中的编号，查找和比较都用编号；
+编号只在当前进程中有效，从分析缓存读出时按字符串重新取编号(见readResolve)
+ */
+public record CallSite(String targetSignature, String targetName, List<ParameterInfo> arguments, int line, int column,
+                       int targetSymbol, int targetNameSymbol) implements Serializable {
+    // 从字符串取编号，目标方法的编号不在手边时使用
+    public CallSite(String targetSignature, String targetName, List<ParameterInfo> arguments, int line, int column) {
+        this(targetSignature, targetName, arguments, line, column,
+                GlobalVariables.getSymbolTable().intern(targetSignature), GlobalVariables.getSymbolTable().intern(targetName));
+    }
+
+    // 缓存中的编号是写入缓存的那个进程分配的
+    private Object readResolve() {
+        return new CallSite(targetSignature, targetName, arguments, line, column);
+    }
+}
@@ -0,0 +1,136 @@
+package org.parser;
+
+import java.util.*;
+
+/*
+调用关系遍历引擎：在整数方法id上做有深度上限的逐层广度优先遍历。
+visited位图保证每个方法只记录一次，expanded位图保证每个方法只展开一次，互相递归的方法不会每一层都重新展开直到深度上限，
+遍历的耗时与图的大小成正比，与深度上限无关。最小深度(第一次到达的层)保存在int数组中，
+结果只在render时才转换成字符串。
+ */
+public class CallTraversal {
+    private final CallGraphStore adjacency;
+
+    public CallTraversal(CallGraphStore adjacency) {
+        this.adjacency = adjacency;
+    }
+
+    // 遍历结果：到达的方法id按第一次到达的顺序排列(同一层内按id排列)
+    public static final class Result {
+        private final int[] order;
+        private final int size;
+        private final int[] minDepth;
+
+        private Result(int[] order, int size, int[] minDepth) {
+            this.order = order;
+            this.size = size;
+            this.minDepth = minDepth;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        // 第index个到达的方法的id
+        public int methodId(int index) {
+            return order[index];
+        }
+
+        // 从起点到methodId的最短调用深度
+        public int minDepth(int methodId) {
+            return minDepth[methodId];
+        }
+    }
+
+    // 边遍历边输出时使用的回调
+    public interface Visitor {
+        // 第一次到达methodId，depth为最短深度，起点的深度为0
+        void node(int methodId, int depth);
+
+        // 沿遍历方向从fromId到toId的一条边，每条边只报告一次
+        void edge(int fromId, int toId);
+    }
+
+    /*
+    流式遍历：每个方法只在第一次到达时展开一次，到达时立即回调，不保存结果，
+    额外占用的内存只有两个位图，与输出的大小无关。深度为depthLimit的方法不再展开，它们发出的边不报告。
+     */
+    public void traverse(int sourceId, int depthLimit, CallAdjacency.Direction direction, Visitor visitor) {
+        int methodCount = adjacency.methodCount();
+        BitSet visited = new BitSet(methodCount);
+        visited.set(sourceId);
+        visitor.node(sourceId, 0);
+
+        BitSet frontier = new BitSet(methodCount);
+        frontier.set(sourceId);
+        for (int depth = 1; depth <= depthLimit && !frontier.isEmpty(); depth++) {
+            BitSet next = new BitSet(methodCount);
+            int currentDepth = depth;
+            for (int id = frontier.nextSetBit(0); id >= 0; id = frontier.nextSetBit(id + 1)) {
+                int fromId = id;
+                adjacency.forEachNeighbor(id, direction, neighbor -> {
+                    visitor.edge(fromId, neighbor);
+                    if (!visited.get(neighbor)) {
+                        visited.set(neighbor);
+                        visitor.node(neighbor, currentDepth);
+                        next.set(neighbor);
+                    }
+                });
+            }
+            frontier = next;
+        }
+    }
+
+    // 从sourceId出发沿direction遍历，深度从1开始，最多到depthLimit
+    public Result traverse(int sourceId, int depthLimit, CallAdjacency.Direction direction) {
+        int methodCount = adjacency.methodCount();
+        int[] order = new int[methodCount];
+        int[] minDepth = new int[methodCount];
+        BitSet visited = new BitSet(methodCount);
+        // 起点已经展开，但经过递归再次到达时仍然要出现在结果中
+        BitSet expanded = new BitSet(methodCount);
+        expanded.set(sourceId);
+        int size = 0;
+
+        BitSet frontier = new BitSet(methodCount);
+        frontier.set(sourceId);
+        for (int depth = 1; depth <= depthLimit && !frontier.isEmpty(); depth++) {
+            BitSet next = new BitSet(methodCount);
+            for (int id = frontier.nextSetBit(0); id >= 0; id = frontier.nextSetBit(id + 1)) {
+                adjacency.forEachNeighbor(id, direction, neighbor -> {
+                    if (!visited.get(neighbor)) {
+                        next.set(neighbor);
+                    }
+                });
+            }
+            for (int id = next.nextSetBit(0); id >= 0; id = next.nextSetBit(id + 1)) {
+                visited.set(id);
+                minDepth[id] = depth;
+                order[size++] = id;
+            }
+            next.andNot(expanded);
+            // 深度为depthLimit的方法不再展开
+            if (depth < depthLimit) {
+                expanded.or(next);
+            }
+            frontier = next;
+        }
+        return new Result(order, size, minDepth);
+    }
+
+    // 按“[方法名, 包名.类名 (depth:最短深度)]”的格式输出，每行一个方法；同一个类中的重载方法只输出一次(深度最小的那个)
+    public static String render(Result result, CallGraphStore callGraph) {
+        List<String> lines = new ArrayList<>();
+        // 按(方法名符号, 类名符号)去重，不需要拼接字符串
+        Set<Long> rendered = new HashSet<>();
+        for (int i = 0; i < result.size(); i++) {
+            int id = result.methodId(i);
+            long nameKey = SymbolTable.pair(callGraph.getClassNameSymbol(id), callGraph.getMethodNameSymbol(id));
+            if (rendered.add(nameKey)) {
+                lines.add("[" + callGraph.getMethodName(id) + ", " + callGraph.getQualifiedClassName(id)
+                        + " (depth:" + result.minDepth(id) + ")]");
+            }
+        }
+        return String.join("\n", lines);
+    }
+}
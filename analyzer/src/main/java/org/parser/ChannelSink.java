@@ -0,0 +1,38 @@
+package org.parser;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+// 输出到NIO通道的CallGraphSink的公共部分：UTF-8编码，带缓冲，缓冲区满了才写入通道
+public abstract class ChannelSink implements CallGraphSink {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    protected final Writer out;
+    protected CallGraphStore callGraph;
+
+    protected ChannelSink(WritableByteChannel channel) {
+        this.out = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    @Override
+    public void begin(CallGraphStore callGraph, int sourceId) throws IOException {
+        this.callGraph = callGraph;
+    }
+
+    // 关闭时同时关闭通道
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    protected static String role(CallAdjacency.Direction direction) {
+        if (direction == null) {
+            return "source";
+        }
+        return direction == CallAdjacency.Direction.CALLERS ? "caller" : "callee";
+    }
+}
@@ -2,8 +2,6 @@ package org.parser;
 
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.PackageDeclaration;
-import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
-import com.github.javaparser.ast.body.MethodDeclaration;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -11,43 +9,116 @@ import java.util.Optional;
 
 public class ClassInfoInFile implements Analyzable<MethodInfo> {
 
-    private final CompilationUnit unit;
+    private CompilationUnit unit; // 从分析缓存恢复时和releaseAst之后为null
+    private FileFacts facts; // analyze中提取的事实表，从分析缓存恢复时和releaseAst之后为null
     private final List<MethodInfo> methods;
+    private String className;
+    private String packageName;
+    // 文件中声明的类型和出现的名称，分析缓存据此判断文件是否依赖变化的类型
+    private List<TypeSummary> types = List.of();
+    private List<String> referencedNames = List.of();
 
     public ClassInfoInFile(CompilationUnit unit) {
         this.unit = unit;
         this.methods = new ArrayList<>();
     }
 
-    //JieChu: 这里的analyze方法分析的是一个CompilationUnit类型的java文件，而非一个ClassOrInterfaceDeclaration类型的类
-    public List<MethodInfo> analyze() {
-        // 获取CompilationUnit中所有的类和接口声明
-        List<ClassOrInterfaceDeclaration> classDeclarations = unit.findAll(ClassOrInterfaceDeclaration.class);
+    // 从分析缓存恢复，不需要重新解析源文件
+    public ClassInfoInFile(AnalysisCache.FileEntry entry) {
+        this.unit = null;
+        this.methods = new ArrayList<>();
+        this.className = entry.className();
+        this.packageName = entry.packageName();
+        this.types = entry.types();
+        this.referencedNames = entry.referencedNames();
+        for (MethodSummary summary : entry.methods()) {
+            methods.add(new MethodInfo(summary));
+        }
+    }
 
-        for (ClassOrInterfaceDeclaration classDeclaration : classDeclarations) {
-            // 获取类或接口中所有的方法声明
-            List<MethodDeclaration> methodDeclarations = classDeclaration.getMethods();     // 在每个类中获取所有方法声明
-            for (MethodDeclaration methodDeclaration : methodDeclarations) {
-                // 为每个方法创建MethodInfo对象，并添加到methods列表中
-                MethodInfo methodInfo = new MethodInfo(methodDeclaration);
-                methods.add(methodInfo);
-            }
+    // 生成写入分析缓存的缓存项
+    public AnalysisCache.FileEntry toCacheEntry(String path, String contentHash) {
+        List<MethodSummary> summaries = new ArrayList<>();
+        for (MethodInfo method : methods) {
+            summaries.add(method.toSummary());
+        }
+        // 文件中没有类声明(例如package-info.java或只有接口)时getClassName会失败，缓存中记为空字符串
+        String name;
+        try {
+            name = getClassName();
+        } catch (RuntimeException e) {
+            name = "";
         }
+        return new AnalysisCache.FileEntry(path, contentHash, AnalysisCache.VERSION, name, getPackageName(), summaries,
+                types, referencedNames);
+    }
 
+    //JieChu: 这里的analyze方法分析的是一个CompilationUnit类型的java文件，而非一个ClassOrInterfaceDeclaration类型的类
+    // 对AST做一次遍历提取事实表(见FileFacts)，再为其中每个类和接口直接声明的方法创建MethodInfo
+    public List<MethodInfo> analyze() {
+        facts = FileFacts.extract(unit);
+        packageName = facts.getPackageName();
+        types = List.copyOf(facts.getTypes());
+        referencedNames = facts.getReferencedNames().stream().sorted().toList();
+        for (FileFacts.MethodFact methodFact : facts.getMethods()) {
+            methods.add(new MethodInfo(facts, methodFact, packageName));
+        }
+        // 类名在释放AST之前取出；文件中没有类声明时保持为null，getClassName仍然失败
+        try {
+            getClassName();
+        } catch (RuntimeException e) {
+            className = null;
+        }
         return methods;
     }
 
+    // 调用关系链接完成后释放AST和事实表，只保留方法摘要；之后需要AST时见ParsedFileCache
+    public void releaseAst() {
+        for (MethodInfo method : methods) {
+            method.releaseDeclaration();
+        }
+        unit = null;
+        facts = null;
+    }
+
     public String getClassName() {
-        // 获取CompilationUnit中的第一个类或接口声明的名称
-        return unit.getClassByName(unit.getType(0).getNameAsString()).orElse(null).getNameAsString();
+        if (className == null && unit == null) {
+            throw new IllegalStateException("没有类声明");
+        }
+        if (className == null) {
+            // 获取CompilationUnit中的第一个类或接口声明的名称
+            className = unit.getClassByName(unit.getType(0).getNameAsString()).orElse(null).getNameAsString();
+        }
+        return className;
     }
 
     public String getPackageName() {
-        // 获取包声明
-        Optional<PackageDeclaration> packageDeclaration = unit.getPackageDeclaration();
+        if (packageName == null) {
+            // 获取包声明
+            Optional<PackageDeclaration> packageDeclaration = unit.getPackageDeclaration();
+
+            // 如果包声明存在，则返回包名，否则返回一个空字符串或其他适当的默认值
+            packageName = packageDeclaration.map(pd -> pd.getName().asString()).orElse("");
+        }
+        return packageName;
+    }
+
+    // 解析出的AST，从分析缓存恢复时和releaseAst之后为null
+    public CompilationUnit getUnit() {
+        return unit;
+    }
+
+    // analyze提取的事实表，从分析缓存恢复时和releaseAst之后为null
+    public FileFacts getFacts() {
+        return facts;
+    }
+
+    public List<TypeSummary> getTypes() {
+        return types;
+    }
 
-        // 如果包声明存在，则返回包名，否则返回一个空字符串或其他适当的默认值
-        return packageDeclaration.map(pd -> pd.getName().asString()).orElse("");
+    public List<String> getReferencedNames() {
+        return referencedNames;
     }
 
     public List<MethodInfo> getMethods() {
@@ -0,0 +1,486 @@
+package org.parser;
+
+import java.util.*;
+import java.util.function.IntFunction;
+
+/*
+按FileFacts中的数据流事实(flow表)为一个文件建立数据流图(见CallGraph)，不再遍历AST，覆盖四种流动：
+1. 声明：局部变量的初始值流向声明节点；成员变量的初始值流向成员变量节点
+2. 赋值：右值流向赋值节点(局部变量)或成员变量节点；复合赋值(+=等)的旧值也流入
+3. 函数调用：实参流向被调用方法的形参，被调用的方法由链接调用关系时记录的调用点(CallSite)确定，不再重新解析
+4. 函数调用返回值：被调用方法的返回值节点流向调用点的返回值节点，再流向使用它的声明、赋值或实参
+值的来源在提取事实时已经记录(见FileFacts.Source)，这里只按名称查找当前的定义，不再遍历表达式。
+使用变量时，流入的是按源代码顺序当前能到达的定义：不在条件、循环、switch、catch、lambda中的赋值覆盖之前的定义，
+在其中的赋值只是加入一个可能的定义，所以先name1 = name2再name2 = name3不会让name3流向name1。
+循环(LoopStart到End)重放两遍：第一遍结束时能到达的定义包含循环中的所有定义，第二遍从这些定义开始，
+循环中后面的赋值就流回了循环开始处的使用；节点按位置查找，第二遍不会产生新的节点，只补上跨越一次循环的边。
+循环中的定义只增不减，第二遍之后不会再有新的边。只有最外层的循环重放两遍：外层的第二遍开始时，
+第一遍中的所有定义已经到达内层循环的开始处，内层循环随外层的每一遍只重放一遍，嵌套多层也不会成倍增加。
+方法(匿名类、局部类中的)有自己的Scope，其中的循环按这个方法的最外层处理。
+成员变量不区分赋值的先后，每个成员变量只有一个节点。调用项目外的方法时，返回值视为来自接收者和所有实参。
+每个文件的结果是一个Fragment，由ProjectAnalyzer保存并合并成数据流图，调用关系变化后只有依赖变了的文件需要重新建立。
+ */
+public class DataFlowBuilder {
+    // 建图时的节点，即数据流图中节点的键；所在的方法记为MethodInfo，合并到数据流图时才换成方法当时的编号
+    private record Node(CallNode.Kind kind, MethodInfo method, String className, String name, int line, int column) {
+    }
+
+    /*
+    一个文件的数据流：节点按第一次用到的顺序排列，边按加入的顺序排列，按这个顺序合并到数据流图(addTo)，结果与直接建图相同。
+    方法的编号在其他文件增删方法后会变，所以不记编号，合并时再取。
+    依赖的是文件中的项目方法(文件重新解析后是新的列表)、这些方法的调用点个数(懒加载模式下会增加)和每个调用点当时链接到的项目方法，
+    三者都没有变化时isCurrent返回true，可以直接再次合并，不需要重新解析文件。
+     */
+    public static final class Fragment {
+        private final List<MethodInfo> methods;
+        private final int callSiteCount;
+        private final List<Node> nodes = new ArrayList<>();
+        private int[] nodeLines = new int[16]; // 创建CallNode时的parameterLine
+        private int[] edges = new int[32]; // 每两项是一条边的起点和终点在nodes中的下标
+        private int edgeCount;
+        private int[] targetSymbols; // 调用点的签名符号，和targets对应
+        private MethodInfo[] targets; // 建立时这些签名对应的项目方法，没有时为null
+        // 以下只在建立时使用
+        private Map<Node, Integer> indexes = new HashMap<>();
+        private LongObjectMap<Boolean> edgeSet = new LongObjectMap<>();
+
+        private Fragment(List<MethodInfo> methods) {
+            this.methods = methods;
+            this.callSiteCount = callSiteCount(methods);
+        }
+
+        private static int callSiteCount(List<MethodInfo> methods) {
+            int count = 0;
+            for (MethodInfo method : methods) {
+                count += method.getCallSites().size();
+            }
+            return count;
+        }
+
+        private Node node(Node node, int nodeLine) {
+            if (!indexes.containsKey(node)) {
+                indexes.put(node, nodes.size());
+                if (nodes.size() == nodeLines.length) {
+                    nodeLines = Arrays.copyOf(nodeLines, nodeLines.length * 2);
+                }
+                nodeLines[nodes.size()] = nodeLine;
+                nodes.add(node);
+            }
+            return node;
+        }
+
+        // 重复的边只记一次，循环的第二遍重放不会让边变多
+        private void edge(Node source, Node destination) {
+            int from = indexes.get(source);
+            int to = indexes.get(destination);
+            if (edgeSet.put(SymbolTable.pair(from, to), Boolean.TRUE) == null) {
+                if (edgeCount * 2 == edges.length) {
+                    edges = Arrays.copyOf(edges, edges.length * 2);
+                }
+                edges[edgeCount * 2] = from;
+                edges[edgeCount * 2 + 1] = to;
+                edgeCount++;
+            }
+        }
+
+        private void finish(List<CallSite> linkedSites, List<MethodInfo> linkedTargets) {
+            targetSymbols = new int[linkedSites.size()];
+            for (int i = 0; i < targetSymbols.length; i++) {
+                targetSymbols[i] = linkedSites.get(i).targetSymbol();
+            }
+            targets = linkedTargets.toArray(new MethodInfo[0]);
+            nodeLines = Arrays.copyOf(nodeLines, nodes.size());
+            edges = Arrays.copyOf(edges, edgeCount * 2);
+            indexes = null;
+            edgeSet = null;
+        }
+
+        // 建立之后文件和它依赖的调用点都没有变化；methods是文件现在的项目方法，methodsBySignature与建立时的含义相同
+        public boolean isCurrent(List<MethodInfo> methods, IntFunction<MethodInfo> methodsBySignature) {
+            if (methods != this.methods || callSiteCount(methods) != callSiteCount) {
+                return false;
+            }
+            for (int i = 0; i < targetSymbols.length; i++) {
+                if (methodsBySignature.apply(targetSymbols[i]) != targets[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // 把节点和边加入graph，已有的节点(例如其他文件调用时创建的形参)直接使用
+        public void addTo(CallGraph graph) {
+            CallNode[] created = new CallNode[nodes.size()];
+            for (int i = 0; i < created.length; i++) {
+                Node node = nodes.get(i);
+                int methodId = node.method() == null ? -1 : node.method().getId();
+                int nodeLine = nodeLines[i];
+                created[i] = graph.getOrCreate(new CallGraph.NodeKey(node.kind(), methodId, node.className(), node.name(), node.line(), node.column()),
+                        () -> new CallNode(node.kind(), node.name(), node.className(), nodeLine, methodId));
+            }
+            for (int i = 0; i < edgeCount; i++) {
+                graph.addDirectedEdge(created[edges[i * 2]], created[edges[i * 2 + 1]]);
+            }
+        }
+    }
+
+    private final Fragment fragment;
+    private final List<CallSite> linkedSites = new ArrayList<>(); // 查找过目标的调用点，和linkedTargets对应
+    private final List<MethodInfo> linkedTargets = new ArrayList<>();
+    private final Map<String, MethodInfo> methodsByPosition; // 类名#方法名@开始的行
+    private final IntFunction<MethodInfo> methodsBySignature;
+    private final Deque<Scope> scopes = new ArrayDeque<>();
+    private final Deque<Runnable> endActions = new ArrayDeque<>(); // 每个还没有结束的开始事实在结束时要做的事
+
+    // 正在分析的类或方法
+    private static final class Scope {
+        final String className;
+        final Map<String, Integer> fieldLines; // 类中声明的成员变量及其所在的行，方法中为null
+        final MethodInfo method; // 对应的项目方法，类本身、构造函数和匿名类、枚举中的方法为null
+        final String methodName;
+        final int beginLine;
+        final Map<String, Set<Node>> definitions = new HashMap<>(); // 局部变量名 -> 当前能到达的定义
+        final LongObjectMap<MethodInfo> callTargets = new LongObjectMap<>(); // 调用表达式结束的位置 -> 被调用的项目方法
+        int conditionalDepth;
+        int lambdaDepth;
+        int loopDepth; // 正在重放的循环的层数
+
+        Scope(String className, Map<String, Integer> fieldLines, MethodInfo method, String methodName, int beginLine) {
+            this.className = className;
+            this.fieldLines = fieldLines;
+            this.method = method;
+            this.methodName = methodName;
+            this.beginLine = beginLine;
+        }
+    }
+
+    private DataFlowBuilder(List<MethodInfo> methods, IntFunction<MethodInfo> methodsBySignature) {
+        this.fragment = new Fragment(methods);
+        this.methodsByPosition = new HashMap<>();
+        for (MethodInfo method : methods) {
+            methodsByPosition.put(method.getClassName() + "#" + method.getMethodName() + "@" + method.getBeginLine(), method);
+        }
+        this.methodsBySignature = methodsBySignature;
+    }
+
+    /*
+    建立facts所在文件的数据流，之后用Fragment.addTo加入数据流图。methods是这个文件中的项目方法，
+    methodsBySignature按签名符号查找项目方法(找不到时返回null)，用来把调用点的实参连到被调用方法的形参。
+     */
+    public static Fragment build(FileFacts facts, List<MethodInfo> methods, IntFunction<MethodInfo> methodsBySignature) {
+        DataFlowBuilder builder = new DataFlowBuilder(methods, methodsBySignature);
+        builder.scopes.push(new Scope("", Map.of(), null, null, 0));
+        List<FileFacts.FlowFact> flow = facts.getFlow();
+        builder.replay(flow, loopEnds(flow), 0, flow.size());
+        builder.fragment.finish(builder.linkedSites, builder.linkedTargets);
+        return builder.fragment;
+    }
+
+    // 每个LoopStart对应的End的下标，其他位置为-1
+    private static int[] loopEnds(List<FileFacts.FlowFact> flow) {
+        int[] ends = new int[flow.size()];
+        Arrays.fill(ends, -1);
+        Deque<Integer> starts = new ArrayDeque<>();
+        for (int i = 0; i < flow.size(); i++) {
+            FileFacts.FlowFact fact = flow.get(i);
+            if (fact instanceof FileFacts.End) {
+                int start = starts.pop();
+                if (flow.get(start) instanceof FileFacts.LoopStart) {
+                    ends[start] = i;
+                }
+            } else if (fact instanceof FileFacts.TypeStart || fact instanceof FileFacts.MethodStart || fact instanceof FileFacts.LambdaStart
+                    || fact instanceof FileFacts.ConditionalStart || fact instanceof FileFacts.LoopStart) {
+                starts.push(i);
+            }
+        }
+        return ends;
+    }
+
+    // 重放flow中[from, to)的事实，最外层的循环重放两遍，已经在循环中的循环重放一遍
+    private void replay(List<FileFacts.FlowFact> flow, int[] loopEnds, int from, int to) {
+        for (int i = from; i < to; i++) {
+            FileFacts.FlowFact fact = flow.get(i);
+            if (fact instanceof FileFacts.LoopStart) {
+                Scope scope = scopes.peek();
+                int passes = scope.loopDepth == 0 ? 2 : 1;
+                scope.conditionalDepth++;
+                scope.loopDepth++;
+                for (int pass = 0; pass < passes; pass++) {
+                    replay(flow, loopEnds, i + 1, loopEnds[i]);
+                }
+                scope.loopDepth--;
+                scope.conditionalDepth--;
+                i = loopEnds[i];
+            } else {
+                replay(fact);
+            }
+        }
+    }
+
+    private void replay(FileFacts.FlowFact fact) {
+        if (fact instanceof FileFacts.TypeStart type) {
+            scopes.push(new Scope(type.className(), type.fieldLines(), null, null, 0));
+            endActions.push(scopes::pop);
+        } else if (fact instanceof FileFacts.MethodStart method) {
+            enterMethod(method);
+            endActions.push(scopes::pop);
+        } else if (fact instanceof FileFacts.LambdaStart lambda) {
+            enterLambda(lambda.parameters());
+        } else if (fact instanceof FileFacts.ConditionalStart) {
+            Scope scope = scopes.peek();
+            scope.conditionalDepth++;
+            endActions.push(() -> scope.conditionalDepth--);
+        } else if (fact instanceof FileFacts.End) {
+            endActions.pop().run();
+        } else if (fact instanceof FileFacts.VariableFact variable) {
+            declaration(variable);
+        } else if (fact instanceof FileFacts.AssignmentFact assignment) {
+            assignment(assignment);
+        } else if (fact instanceof FileFacts.CallFact call) {
+            call(call);
+        } else if (fact instanceof FileFacts.ReturnFact returned) {
+            returnValue(returned.value());
+        }
+    }
+
+    // ---------- 方法和lambda ----------
+
+    private void enterMethod(FileFacts.MethodStart start) {
+        String className = scopes.peek().className;
+        // 构造函数不是项目方法
+        MethodInfo method = start.constructor() ? null
+                : methodsByPosition.get(className + "#" + start.methodName() + "@" + start.beginLine());
+        Scope scope = new Scope(method != null ? method.getClassName() : className, null, method, start.methodName(), start.beginLine());
+        if (method != null) {
+            for (CallSite callSite : method.getCallSites()) {
+                MethodInfo target = methodsBySignature.apply(callSite.targetSymbol());
+                linkedSites.add(callSite);
+                linkedTargets.add(target);
+                if (target != null) {
+                    scope.callTargets.put(position(callSite.line(), callSite.column()), target);
+                }
+            }
+        }
+        scopes.push(scope);
+        List<String> parameters = start.parameterNames();
+        for (int i = 0; i < parameters.size(); i++) {
+            String name = parameters.get(i);
+            Node parameter = parameterNode(scope.className, scope.method, name, start.beginLine(), i);
+            scope.definitions.put(name, new LinkedHashSet<>(List.of(parameter)));
+        }
+    }
+
+    private void enterLambda(List<FileFacts.LambdaParameter> parameters) {
+        Scope scope = scopes.peek();
+        // lambda的参数只在lambda中可见，结束后恢复同名局部变量的定义
+        Map<String, Set<Node>> shadowed = new HashMap<>();
+        for (FileFacts.LambdaParameter parameter : parameters) {
+            shadowed.put(parameter.name(), scope.definitions.get(parameter.name()));
+        }
+        scope.conditionalDepth++;
+        scope.lambdaDepth++;
+        for (FileFacts.LambdaParameter parameter : parameters) {
+            declare(parameter.name(), parameter.line(), parameter.column());
+        }
+        endActions.push(() -> {
+            scope.conditionalDepth--;
+            scope.lambdaDepth--;
+            shadowed.forEach((name, definitions) -> {
+                if (definitions == null) {
+                    scope.definitions.remove(name);
+                } else {
+                    scope.definitions.put(name, definitions);
+                }
+            });
+        });
+    }
+
+    // ---------- 四种流动 ----------
+
+    private void declaration(FileFacts.VariableFact variable) {
+        if (variable.field()) {
+            Node field = fieldNode(scopes.peek().className, variable.name());
+            if (variable.initializer() != null) {
+                link(resolve(variable.initializer()), field);
+            }
+        } else {
+            List<Node> sources = variable.initializer() != null ? resolve(variable.initializer()) : List.of();
+            link(sources, declare(variable.name(), variable.line(), variable.column()));
+        }
+    }
+
+    private void assignment(FileFacts.AssignmentFact assignment) {
+        List<Node> sources = new ArrayList<>(resolve(assignment.value()));
+        sources.addAll(resolve(assignment.targetValue()));
+
+        String name = assignment.targetName();
+        Scope scope = scopes.peek();
+        switch (assignment.targetKind()) {
+            case NAME -> {
+                if (scope.definitions.containsKey(name)) {
+                    Node node = node(CallNode.Kind.ASSIGNMENT, name, assignment.line(), assignment.column());
+                    link(sources, node);
+                    define(name, node, false);
+                } else {
+                    link(sources, fieldNode(fieldOwner(name), name));
+                }
+            }
+            case THIS_FIELD -> link(sources, fieldNode(fieldOwner(name), name));
+            case ARRAY_ELEMENT -> {
+                if (scope.definitions.containsKey(name)) {
+                    // 给数组的一个元素赋值不会覆盖数组中其他元素的来源
+                    Node node = node(CallNode.Kind.ASSIGNMENT, name, assignment.line(), assignment.column());
+                    link(sources, node);
+                    define(name, node, true);
+                } else {
+                    link(sources, node(CallNode.Kind.EXPRESSION, assignment.targetText(), assignment.line(), assignment.column()));
+                }
+            }
+            case OTHER -> link(sources, node(CallNode.Kind.EXPRESSION, assignment.targetText(), assignment.line(), assignment.column()));
+        }
+    }
+
+    private void call(FileFacts.CallFact fact) {
+        Scope scope = scopes.peek();
+        Node result = node(CallNode.Kind.CALL_RESULT, fact.name(), fact.endLine(), fact.endColumn());
+        MethodInfo target = scope.callTargets.get(position(fact.endLine(), fact.endColumn()));
+        List<FileFacts.ArgumentFact> arguments = fact.arguments();
+        for (int i = 0; i < arguments.size(); i++) {
+            FileFacts.ArgumentFact argument = arguments.get(i);
+            Node argumentNode = node(CallNode.Kind.ARGUMENT, argument.text(), argument.line(), argument.column());
+            link(resolve(argument.value()), argumentNode);
+            if (target == null) {
+                fragment.edge(argumentNode, result);
+            } else if (!target.getParameterNames().isEmpty()) {
+                // 可变参数方法多出来的实参都流向最后一个形参
+                int index = Math.min(i, target.getParameterNames().size() - 1);
+                fragment.edge(argumentNode, parameterNode(target.getClassName(), target,
+                        target.getParameterNames().get(index), target.getBeginLine(), index));
+            }
+        }
+        if (target != null) {
+            fragment.edge(returnNode(target.getClassName(), target, target.getMethodName(), target.getBeginLine()), result);
+        } else if (fact.receiver() != null) {
+            link(resolve(fact.receiver()), result);
+        }
+    }
+
+    private void returnValue(List<FileFacts.Source> value) {
+        Scope scope = scopes.peek();
+        // lambda中的return是lambda的返回值，不是所在方法的
+        if (scope.methodName != null && scope.lambdaDepth == 0) {
+            link(resolve(value), returnNode(scope.className, scope.method, scope.methodName, scope.beginLine));
+        }
+    }
+
+    // ---------- 值的来源对应的节点 ----------
+
+    private List<Node> resolve(List<FileFacts.Source> sources) {
+        if (sources.size() == 1) {
+            return resolve(sources.get(0));
+        }
+        List<Node> result = new ArrayList<>();
+        for (FileFacts.Source source : sources) {
+            result.addAll(resolve(source));
+        }
+        return result;
+    }
+
+    private List<Node> resolve(FileFacts.Source source) {
+        if (source instanceof FileFacts.NameSource name) {
+            Set<Node> definitions = scopes.peek().definitions.get(name.name());
+            if (definitions != null) {
+                return new ArrayList<>(definitions);
+            }
+            String owner = declaredFieldOwner(name.name());
+            return owner == null ? List.of() : List.of(fieldNode(owner, name.name()));
+        }
+        if (source instanceof FileFacts.ThisFieldSource field) {
+            return List.of(fieldNode(fieldOwner(field.name()), field.name()));
+        }
+        if (source instanceof FileFacts.LiteralSource literal) {
+            return List.of(node(CallNode.Kind.LITERAL, literal.text(), literal.line(), literal.column()));
+        }
+        if (source instanceof FileFacts.CallResultSource callResult) {
+            return List.of(node(CallNode.Kind.CALL_RESULT, callResult.name(), callResult.endLine(), callResult.endColumn()));
+        }
+        FileFacts.ExpressionSource expression = (FileFacts.ExpressionSource) source;
+        Node node = node(CallNode.Kind.EXPRESSION, expression.text(), expression.line(), expression.column());
+        link(resolve(expression.inputs()), node);
+        return List.of(node);
+    }
+
+    // ---------- 节点 ----------
+
+    private Node node(CallNode.Kind kind, String name, int line, int column) {
+        Scope scope = scopes.peek();
+        return fragment.node(new Node(kind, scope.method, scope.className, name, line, column), line);
+    }
+
+    private Node parameterNode(String className, MethodInfo method, String name, int beginLine, int index) {
+        return fragment.node(new Node(CallNode.Kind.PARAMETER, method, className, name, beginLine, index), beginLine);
+    }
+
+    private Node returnNode(String className, MethodInfo method, String methodName, int beginLine) {
+        return fragment.node(new Node(CallNode.Kind.RETURN, method, className, methodName, beginLine, -1), beginLine);
+    }
+
+    private Node fieldNode(String className, String name) {
+        Node key = new Node(CallNode.Kind.FIELD, null, className, name, 0, 0);
+        return fragment.node(key, fragment.indexes.containsKey(key) ? 0 : fieldLine(className, name));
+    }
+
+    // 局部变量的一次声明，总是覆盖同名变量之前的定义
+    private Node declare(String name, int line, int column) {
+        Node node = node(CallNode.Kind.DECLARATION, name, line, column);
+        Set<Node> definitions = new LinkedHashSet<>();
+        definitions.add(node);
+        scopes.peek().definitions.put(name, definitions);
+        return node;
+    }
+
+    // 局部变量的一次赋值，不在条件和循环中且不是partial(只改了一部分，例如数组元素)时覆盖之前的定义
+    private void define(String name, Node node, boolean partial) {
+        Scope scope = scopes.peek();
+        if (!partial && scope.conditionalDepth == 0) {
+            scope.definitions.put(name, new LinkedHashSet<>(List.of(node)));
+        } else {
+            scope.definitions.computeIfAbsent(name, key -> new LinkedHashSet<>()).add(node);
+        }
+    }
+
+    private void link(List<Node> sources, Node destination) {
+        for (Node source : sources) {
+            fragment.edge(source, destination);
+        }
+    }
+
+    // 声明了成员变量name的最内层的类，没有时返回null
+    private String declaredFieldOwner(String name) {
+        for (Scope scope : scopes) {
+            if (scope.fieldLines != null && scope.fieldLines.containsKey(name)) {
+                return scope.className;
+            }
+        }
+        return null;
+    }
+
+    // 成员变量所在的类，找不到声明时(例如继承来的)认为是当前类的
+    private String fieldOwner(String name) {
+        String owner = declaredFieldOwner(name);
+        return owner != null ? owner : scopes.peek().className;
+    }
+
+    private int fieldLine(String className, String name) {
+        for (Scope scope : scopes) {
+            if (scope.fieldLines != null && scope.className.equals(className)) {
+                return scope.fieldLines.getOrDefault(name, 0);
+            }
+        }
+        return 0;
+    }
+
+    private static long position(int line, int column) {
+        return ((long) line << 32) | column;
+    }
+}
@@ -0,0 +1,151 @@
+package org.parser;
+
+import com.github.javaparser.resolution.declarations.ResolvedMethodDeclaration;
+
+import java.util.*;
+
+/*
+按需链接调用关系：懒加载模式下ProjectAnalyzer不在构造时链接整个项目，而是在查询某个方法时，
+只解析这个方法以及depth范围内的调用者和被调用者。
+调用点先按被调用的方法名(只看语法，不解析)建立候选索引，查找调用者时只需解析同名且参数个数相符的调用点；
+查找被调用者时，没有同名且参数个数相符的项目内方法的调用点也不解析。
+ */
+public class DemandLinker {
+    // 调用点候选：所在的方法 + 调用点
+    private record CandidateCall(MethodInfo caller, FileFacts.CallFact call) {
+    }
+
+    private final SymbolArray<List<MethodInfo>> methodsByName = new SymbolArray<>(); // 方法名符号 -> 同名的项目内方法
+    private final SymbolArray<List<CandidateCall>> callsByName = new SymbolArray<>(); // 被调用的方法名符号 -> 同名的调用点
+    // 已经解析过的调用点，每个调用点最多解析一次；值为null表示没有调用项目内的方法
+    private final Map<FileFacts.CallFact, MethodInfo> resolvedCalls = new IdentityHashMap<>();
+    private final Set<MethodInfo> calleesLinked = new HashSet<>();
+    private final Set<MethodInfo> callersLinked = new HashSet<>();
+    private final TypeResolutionCache typeResolutionCache;
+    private final AnalysisMetrics metrics;
+
+    public DemandLinker(List<MethodInfo> methods, TypeResolutionCache typeResolutionCache, AnalysisMetrics metrics) {
+        this.typeResolutionCache = typeResolutionCache;
+        this.metrics = metrics;
+        for (MethodInfo method : methods) {
+            methodsByName.computeIfAbsent(method.getMethodNameSymbol(), name -> new ArrayList<>()).add(method);
+            for (FileFacts.CallFact call : method.getCalls()) {
+                callsByName.computeIfAbsent(call.nameSymbol(), name -> new ArrayList<>())
+                        .add(new CandidateCall(method, call));
+            }
+        }
+    }
+
+    // 链接method在depth范围内的调用关系，之后getInvokes/getInvokedBy在这个深度内的结果是完整的；有新解析的调用点时返回true
+    public boolean expand(MethodInfo method, int depth) {
+        int resolvedBefore = resolvedCalls.size();
+        // 被调用者方向：第0层到第depth-1层的方法需要知道自己调用了谁
+        List<MethodInfo> frontier = List.of(method);
+        Set<MethodInfo> seen = new HashSet<>(frontier);
+        for (int level = 0; level < depth && !frontier.isEmpty(); level++) {
+            List<MethodInfo> next = new ArrayList<>();
+            for (MethodInfo current : frontier) {
+                linkCallees(current);
+                for (MethodInfo callee : current.getCalledMethods()) {
+                    if (seen.add(callee)) {
+                        next.add(callee);
+                    }
+                }
+            }
+            frontier = next;
+        }
+
+        // 调用者方向同理
+        frontier = List.of(method);
+        seen = new HashSet<>(frontier);
+        for (int level = 0; level < depth && !frontier.isEmpty(); level++) {
+            List<MethodInfo> next = new ArrayList<>();
+            for (MethodInfo current : frontier) {
+                linkCallers(current);
+                for (MethodInfo caller : current.getMethodsCallingThis()) {
+                    if (seen.add(caller)) {
+                        next.add(caller);
+                    }
+                }
+            }
+            frontier = next;
+        }
+        return resolvedCalls.size() != resolvedBefore;
+    }
+
+    // 解析method中的所有调用点
+    private void linkCallees(MethodInfo method) {
+        if (!calleesLinked.add(method)) {
+            return;
+        }
+        for (FileFacts.CallFact call : method.getCalls()) {
+            resolveCall(method, call);
+        }
+    }
+
+    // 只解析可能调用method的候选调用点
+    private void linkCallers(MethodInfo method) {
+        if (!callersLinked.add(method)) {
+            return;
+        }
+        for (CandidateCall candidate : callsByName.getOrDefault(method.getMethodNameSymbol(), List.of())) {
+            if (method.acceptsArgumentCount(candidate.call().argumentCount())) {
+                resolveCall(candidate.caller(), candidate.call());
+            }
+        }
+    }
+
+    // 没有同名且参数个数相符的项目内方法时，不需要解析就知道调用的是项目外的方法
+    private boolean mayTarget(FileFacts.CallFact call) {
+        for (MethodInfo candidate : methodsByName.getOrDefault(call.nameSymbol(), List.of())) {
+            if (candidate.acceptsArgumentCount(call.argumentCount())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void resolveCall(MethodInfo caller, FileFacts.CallFact call) {
+        if (resolvedCalls.containsKey(call)) {
+            return;
+        }
+        if (!mayTarget(call)) {
+            resolvedCalls.put(call, null);
+            metrics.recordCallFiltered();
+            return;
+        }
+        MethodInfo target = null;
+        long started = metrics.start();
+        try {
+            ResolvedMethodDeclaration resolvedMethod = caller.callExpression(call).resolve();
+            // 解析出的签名和方法名都只查一次符号表
+            String signature = MethodIndex.signatureOf(resolvedMethod, typeResolutionCache);
+            SymbolTable symbols = GlobalVariables.getSymbolTable();
+            // 只比较同名方法的签名符号，其他方法的声明不需要解析；
+            // 候选方法的签名第一次用到时才解析并加入符号表，所以先取候选的签名符号，再查调用目标的签名
+            List<MethodInfo> candidates = methodsByName.getOrDefault(symbols.lookup(resolvedMethod.getName()), List.of());
+            for (MethodInfo candidate : candidates) {
+                candidate.getSignatureSymbol();
+            }
+            int signatureSymbol = symbols.lookup(signature);
+            for (MethodInfo candidate : candidates) {
+                if (signatureSymbol >= 0 && signatureSymbol == candidate.getSignatureSymbol()) {
+                    target = candidate;
+                    break;
+                }
+            }
+            metrics.record(AnalysisMetrics.Phase.TYPE_RESOLUTION, started);
+            if (target == null) {
+                metrics.recordCallExternal();
+            }
+        } catch (Exception e) {
+            metrics.record(AnalysisMetrics.Phase.TYPE_RESOLUTION, started);
+            metrics.recordCallFailed(e, caller.getClassName() + "." + caller.getMethodName() + ": " + caller.callExpression(call));
+        }
+        resolvedCalls.put(call, target);
+        if (target != null) {
+            caller.linkCall(target, call, metrics);
+            metrics.recordCallLinked();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package org.parser;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+// Graphviz DOT格式，节点名为m加方法id，起点加粗显示
+public class DotSink extends ChannelSink {
+
+    public DotSink(WritableByteChannel channel) {
+        super(channel);
+    }
+
+    @Override
+    public void begin(CallGraphStore callGraph, int sourceId) throws IOException {
+        super.begin(callGraph, sourceId);
+        out.write("digraph calls {\n");
+        out.write("  node [shape=box];\n");
+    }
+
+    @Override
+    public void node(int methodId, int depth, CallAdjacency.Direction direction) throws IOException {
+        out.write("  m" + methodId + " [label=\"" + escape(callGraph.getMethodName(methodId))
+                + "\\n" + escape(callGraph.getQualifiedClassName(methodId)) + "\\ndepth:" + depth + "\""
+                + (direction == null ? ", style=bold" : "") + "];\n");
+    }
+
+    @Override
+    public void edge(int callerId, int calleeId) throws IOException {
+        out.write("  m" + callerId + " -> m" + calleeId + ";\n");
+    }
+
+    @Override
+    public void end() throws IOException {
+        out.write("}\n");
+        out.flush();
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
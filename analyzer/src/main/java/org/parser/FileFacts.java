@@ -0,0 +1,578 @@
+package org.parser;
+
+import com.github.javaparser.Position;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.*;
+import com.github.javaparser.ast.expr.*;
+import com.github.javaparser.ast.stmt.*;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+import com.github.javaparser.ast.type.Type;
+import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
+
+import java.nio.file.Path;
+import java.util.*;
+
+/*
+一个CompilationUnit的事实表，由extract对AST做一次遍历得到，之后的各个阶段只读这些表，不再各自遍历AST：
+1. methods：类和接口中直接声明的方法(即ClassInfoInFile中的MethodInfo)，按类在文件中出现的顺序，类中按声明的顺序；
+   每个方法带有其中的所有调用点，包括lambda、匿名类和局部类中的，按调用表达式在源代码中的先后(外层的调用在前)
+2. calls：文件中的所有调用点，包括方法名、实参个数和位置，名称过滤和负缓存直接使用，不需要再从调用表达式计算
+3. flow：数据流相关的事实(类、方法、lambda、条件、循环的开始和结束，变量声明、赋值、调用、return)，按遍历的顺序排列，
+   DataFlowBuilder按顺序重放这张表建立数据流图
+4. types和referencedNames：文件中声明的类型在类型层面的样子(见TypeSummary)，以及文件中出现的所有类型名和名称，
+   分析缓存据此找出依赖变化的类型的文件
+事实表只记录名称、位置、实参的源代码和值的来源(见Source)，不引用AST，之后的阶段不再遍历表达式。
+解析方法签名和调用目标仍然需要AST，对应的方法声明和调用表达式单独保存(见declarationOf、expressionOf)，
+链接完成后releaseAst丢掉它们，事实表就不再占住CompilationUnit。
+ */
+public class FileFacts {
+    /*
+    类或接口中直接声明的一个方法；id是方法声明在declarations中的下标。
+    parameterTypes是参数类型的源代码，varArgs表示最后一个参数是可变参数；calls按调用表达式开始的位置排列，位置相同时外层的调用在前
+     */
+    public record MethodFact(int id, String methodName, String className, List<String> parameterNames, List<String> parameterTypes,
+                             boolean varArgs, int beginLine, int endLine, List<CallFact> calls) {
+    }
+
+    // 一个值的来源，DataFlowBuilder重放到这里时才按当时能到达的定义解析成数据流图中的节点
+    public sealed interface Source permits NameSource, ThisFieldSource, LiteralSource, CallResultSource, ExpressionSource {
+    }
+
+    // 一个名称：有定义的局部变量，否则是成员变量
+    public record NameSource(String name) implements Source {
+    }
+
+    // this.name
+    public record ThisFieldSource(String name) implements Source {
+    }
+
+    public record LiteralSource(String text, int line, int column) implements Source {
+    }
+
+    // 调用点的返回值，按调用表达式结束的位置区分
+    public record CallResultSource(String name, int endLine, int endColumn) implements Source {
+    }
+
+    // 访问其他对象的成员变量、new等表达式，本身是一个节点，inputs流入它
+    public record ExpressionSource(String text, int line, int column, List<Source> inputs) implements Source {
+    }
+
+    // 数据流相关的事实，见DataFlowBuilder
+    public sealed interface FlowFact permits TypeStart, MethodStart, LambdaStart, ConditionalStart, LoopStart, End,
+            VariableFact, AssignmentFact, CallFact, ReturnFact {
+    }
+
+    // 类或枚举的开始，fieldLines是其中声明的成员变量及其所在的行
+    public record TypeStart(String className, Map<String, Integer> fieldLines) implements FlowFact {
+    }
+
+    // 方法或构造函数的开始；所在的类是包围它的TypeStart
+    public record MethodStart(String methodName, int beginLine, List<String> parameterNames, boolean constructor) implements FlowFact {
+    }
+
+    // lambda的开始，参数只在lambda中可见
+    public record LambdaStart(List<LambdaParameter> parameters) implements FlowFact {
+    }
+
+    public record LambdaParameter(String name, int line, int column) {
+    }
+
+    // 条件、switch、catch或三元表达式的开始，其中的赋值不覆盖之前的定义
+    public record ConditionalStart() implements FlowFact {
+    }
+
+    // 循环的开始，到对应的End为止是每次循环都要执行的部分(条件、循环体、for的更新)，for的初始化在它之前；
+    // 与条件一样其中的赋值不覆盖之前的定义，另外后面的定义要流回前面的使用
+    public record LoopStart() implements FlowFact {
+    }
+
+    // 最近一个还没有结束的TypeStart、MethodStart、LambdaStart、ConditionalStart或LoopStart的结束
+    public record End() implements FlowFact {
+    }
+
+    /*
+    变量声明：局部变量、成员变量(field为true)或for-each的循环变量(initializer为被遍历的集合)；
+    line、column是声明的位置，没有初始值时initializer为null
+     */
+    public record VariableFact(String name, int line, int column, List<Source> initializer, boolean field) implements FlowFact {
+    }
+
+    // 赋值的目标：局部变量或成员变量名、this的成员变量、数组元素(name为数组名)，其他目标只有源代码text
+    public enum TargetKind {
+        NAME, THIS_FIELD, ARRAY_ELEMENT, OTHER
+    }
+
+    /*
+    赋值；line、column是赋值表达式的位置。compound表示复合赋值(+=等)，目标的旧值targetValue也流入，否则targetValue为空。
+    ARRAY_ELEMENT的数组不是局部变量时和OTHER一样按text处理。
+     */
+    public record AssignmentFact(TargetKind targetKind, String targetName, String targetText, List<Source> value,
+                                 List<Source> targetValue, int line, int column) implements FlowFact {
+    }
+
+    // 带返回值的return
+    public record ReturnFact(List<Source> value) implements FlowFact {
+    }
+
+    // 调用点的一个实参：源代码、开始的位置和值的来源
+    public record ArgumentFact(String text, int line, int column, List<Source> value) {
+    }
+
+    /*
+    一个调用点。id是调用表达式在callExpressions中的下标；nameSymbol是方法名在符号表中的编号；
+    className是包围调用的最内层的类或接口，没有时为空字符串；receiver是接收者的值，没有写接收者时为null；
+    siteKey是负缓存的键“文件路径:行:列:方法名/实参个数”，不是从文件解析出的调用为null。
+     */
+    public record CallFact(int id, String name, int nameSymbol, int argumentCount, String className,
+                           int beginLine, int beginColumn, int endLine, int endColumn, String siteKey,
+                           List<ArgumentFact> arguments, List<Source> receiver) implements FlowFact {
+        // 每一个实参的字符串形式、所在的类和所在的行，链接调用关系时使用
+        public List<ParameterInfo> argumentInfos() {
+            List<ParameterInfo> parameterInfoList = new ArrayList<>(arguments.size());
+            for (ArgumentFact argument : arguments) {
+                parameterInfoList.add(new ParameterInfo(argument.text(), className, argument.line()));
+            }
+            return parameterInfoList;
+        }
+    }
+
+    private final String packageName;
+    private final List<MethodFact> methods = new ArrayList<>();
+    private final List<CallFact> calls = new ArrayList<>();
+    private final List<FlowFact> flow = new ArrayList<>();
+    private final List<TypeSummary> types = new ArrayList<>();
+    private final Set<String> referencedNames = new HashSet<>(); // 类型的简单名和NameExpr的名称(可能是Base.foo()中的类名)
+    // 按MethodFact.id和CallFact.id排列的AST节点，releaseAst之后为null
+    private List<MethodDeclaration> declarations = new ArrayList<>();
+    private List<MethodCallExpr> callExpressions = new ArrayList<>();
+
+    private FileFacts(String packageName) {
+        this.packageName = packageName;
+    }
+
+    // 遍历unit一次，提取所有的事实
+    public static FileFacts extract(CompilationUnit unit) {
+        FileFacts facts = new FileFacts(unit.getPackageDeclaration().map(pd -> pd.getName().asString()).orElse(""));
+        Path path = unit.getStorage().map(CompilationUnit.Storage::getPath).orElse(null);
+        Extractor extractor = new Extractor(facts, path == null ? null : path.toAbsolutePath().normalize().toString());
+        unit.accept(extractor, null);
+        // 局部类和成员类中的方法排在外层类的所有方法之后，和按类逐个取方法的顺序一致
+        for (List<MethodFact> classMethods : extractor.methodsByClass) {
+            facts.methods.addAll(classMethods);
+        }
+        Comparator<CallFact> sourceOrder = Comparator.comparingInt(CallFact::beginLine)
+                .thenComparingInt(CallFact::beginColumn)
+                .thenComparing(Comparator.comparingInt(CallFact::endLine).thenComparingInt(CallFact::endColumn).reversed());
+        for (MethodFact method : facts.methods) {
+            method.calls().sort(sourceOrder);
+        }
+        return facts;
+    }
+
+    public String getPackageName() {
+        return packageName;
+    }
+
+    public List<MethodFact> getMethods() {
+        return methods;
+    }
+
+    public List<CallFact> getCalls() {
+        return calls;
+    }
+
+    public List<FlowFact> getFlow() {
+        return flow;
+    }
+
+    public List<TypeSummary> getTypes() {
+        return types;
+    }
+
+    public Set<String> getReferencedNames() {
+        return referencedNames;
+    }
+
+    // 方法的声明，解析签名时使用；releaseAst之后返回null
+    public MethodDeclaration declarationOf(MethodFact method) {
+        return declarations == null ? null : declarations.get(method.id());
+    }
+
+    // 调用表达式，解析调用目标时使用；releaseAst之后返回null
+    public MethodCallExpr expressionOf(CallFact call) {
+        return callExpressions == null ? null : callExpressions.get(call.id());
+    }
+
+    // 丢掉方法声明和调用表达式，之后事实表不再引用AST
+    public void releaseAst() {
+        declarations = null;
+        callExpressions = null;
+    }
+
+    // 提取事实的访问者；访问者先访问实参再访问接收者，所以每个方法的调用点最后按位置重新排序
+    private static final class Extractor extends VoidVisitorAdapter<Void> {
+        private static final End END = new End();
+
+        private final FileFacts facts;
+        private final String path;
+        private final Deque<ClassOrInterfaceDeclaration> classes = new ArrayDeque<>();
+        private final List<List<MethodFact>> methodsByClass = new ArrayList<>(); // 每个类或接口的方法，按类开始的位置排列
+        private final Deque<List<MethodFact>> classMethods = new ArrayDeque<>(); // 和classes对应
+        private final List<MethodFact> enclosingMethods = new ArrayList<>(); // 包围当前位置的MethodFact，由外到内
+        private final SymbolTable symbols = GlobalVariables.getSymbolTable();
+
+        Extractor(FileFacts facts, String path) {
+            this.facts = facts;
+            this.path = path;
+        }
+
+        // ---------- 类和方法 ----------
+
+        @Override
+        public void visit(ClassOrInterfaceDeclaration declaration, Void arg) {
+            List<ClassOrInterfaceType> supertypes = new ArrayList<>(declaration.getExtendedTypes());
+            supertypes.addAll(declaration.getImplementedTypes());
+            facts.types.add(typeSummary(declaration, supertypes));
+            facts.flow.add(new TypeStart(declaration.getNameAsString(), fieldLines(declaration.getFields())));
+            List<MethodFact> methods = new ArrayList<>();
+            methodsByClass.add(methods);
+            classes.push(declaration);
+            classMethods.push(methods);
+            super.visit(declaration, arg);
+            classes.pop();
+            classMethods.pop();
+            facts.flow.add(END);
+        }
+
+        @Override
+        public void visit(EnumDeclaration declaration, Void arg) {
+            facts.types.add(typeSummary(declaration, declaration.getImplementedTypes()));
+            facts.flow.add(new TypeStart(declaration.getNameAsString(), fieldLines(declaration.getFields())));
+            super.visit(declaration, arg);
+            facts.flow.add(END);
+        }
+
+        // 类型名、父类型、成员变量的类型和方法的返回类型，以及其中出现的类型名
+        private static TypeSummary typeSummary(TypeDeclaration<?> declaration, List<ClassOrInterfaceType> supertypes) {
+            StringBuilder shape = new StringBuilder(declaration.getNameAsString());
+            List<Type> memberTypes = new ArrayList<>(supertypes);
+            shape.append(" : ").append(supertypes);
+            for (FieldDeclaration field : declaration.getFields()) {
+                for (VariableDeclarator variable : field.getVariables()) {
+                    shape.append("; ").append(variable.getNameAsString()).append(' ').append(variable.getType());
+                    memberTypes.add(variable.getType());
+                }
+            }
+            for (MethodDeclaration method : declaration.getMethods()) {
+                shape.append("; ").append(method.getNameAsString()).append("() ").append(method.getType());
+                memberTypes.add(method.getType());
+            }
+            Set<String> mentionedTypes = new TreeSet<>();
+            for (Type type : memberTypes) {
+                for (ClassOrInterfaceType mentioned : type.findAll(ClassOrInterfaceType.class)) {
+                    mentionedTypes.add(mentioned.getNameAsString());
+                }
+            }
+            return new TypeSummary(declaration.getNameAsString(), shape.toString(), List.copyOf(mentionedTypes));
+        }
+
+        private static Map<String, Integer> fieldLines(List<FieldDeclaration> fields) {
+            Map<String, Integer> fieldLines = new HashMap<>();
+            for (FieldDeclaration field : fields) {
+                for (VariableDeclarator variable : field.getVariables()) {
+                    fieldLines.put(variable.getNameAsString(), line(variable));
+                }
+            }
+            return fieldLines;
+        }
+
+        @Override
+        public void visit(MethodDeclaration declaration, Void arg) {
+            // 只有类或接口直接声明的方法是项目方法，匿名类、枚举中的方法不是
+            MethodFact method = null;
+            ClassOrInterfaceDeclaration owner = classes.peek();
+            if (owner != null && declaration.getParentNode().orElse(null) == owner) {
+                List<String> parameterTypes = new ArrayList<>();
+                for (Parameter parameter : declaration.getParameters()) {
+                    parameterTypes.add(parameter.getType().asString());
+                }
+                boolean varArgs = declaration.getParameters().getLast().map(Parameter::isVarArgs).orElse(false);
+                method = new MethodFact(facts.declarations.size(), declaration.getNameAsString(), owner.getNameAsString(),
+                        parameterNames(declaration.getParameters()), parameterTypes, varArgs,
+                        line(declaration), declaration.getEnd().map(position -> position.line).orElse(0), new ArrayList<>());
+                facts.declarations.add(declaration);
+                classMethods.peek().add(method);
+                enclosingMethods.add(method);
+            }
+            facts.flow.add(new MethodStart(declaration.getNameAsString(), line(declaration),
+                    parameterNames(declaration.getParameters()), false));
+            declaration.getType().accept(this, arg);
+            visitSignatureTypes(declaration, arg);
+            declaration.getBody().ifPresent(body -> body.accept(this, arg));
+            facts.flow.add(END);
+            if (method != null) {
+                enclosingMethods.remove(enclosingMethods.size() - 1);
+            }
+        }
+
+        @Override
+        public void visit(ConstructorDeclaration declaration, Void arg) {
+            facts.flow.add(new MethodStart(declaration.getNameAsString(), line(declaration),
+                    parameterNames(declaration.getParameters()), true));
+            visitSignatureTypes(declaration, arg);
+            declaration.getBody().accept(this, arg);
+            facts.flow.add(END);
+        }
+
+        // 方法体之外只访问参数和throws中的类型，记下其中出现的类型名
+        private void visitSignatureTypes(CallableDeclaration<?> declaration, Void arg) {
+            for (Parameter parameter : declaration.getParameters()) {
+                parameter.getType().accept(this, arg);
+            }
+            declaration.getThrownExceptions().forEach(exception -> exception.accept(this, arg));
+        }
+
+        private static List<String> parameterNames(List<Parameter> parameters) {
+            List<String> names = new ArrayList<>(parameters.size());
+            for (Parameter parameter : parameters) {
+                names.add(parameter.getNameAsString());
+            }
+            return names;
+        }
+
+        @Override
+        public void visit(LambdaExpr lambda, Void arg) {
+            List<LambdaParameter> parameters = new ArrayList<>();
+            for (Parameter parameter : lambda.getParameters()) {
+                Position begin = begin(parameter);
+                parameters.add(new LambdaParameter(parameter.getNameAsString(), begin.line, begin.column));
+                parameter.getType().accept(this, arg);
+            }
+            facts.flow.add(new LambdaStart(parameters));
+            lambda.getBody().accept(this, arg);
+            facts.flow.add(END);
+        }
+
+        // ---------- 条件和循环 ----------
+
+        @Override
+        public void visit(IfStmt statement, Void arg) {
+            facts.flow.add(new ConditionalStart());
+            super.visit(statement, arg);
+            facts.flow.add(END);
+        }
+
+        // 循环按执行的顺序访问：初始化只执行一次，在循环之外；条件、循环体和更新在循环之内
+        @Override
+        public void visit(ForStmt statement, Void arg) {
+            statement.getInitialization().forEach(initialization -> initialization.accept(this, arg));
+            facts.flow.add(new LoopStart());
+            statement.getCompare().ifPresent(compare -> compare.accept(this, arg));
+            statement.getBody().accept(this, arg);
+            statement.getUpdate().forEach(update -> update.accept(this, arg));
+            facts.flow.add(END);
+        }
+
+        @Override
+        public void visit(WhileStmt statement, Void arg) {
+            facts.flow.add(new LoopStart());
+            statement.getCondition().accept(this, arg);
+            statement.getBody().accept(this, arg);
+            facts.flow.add(END);
+        }
+
+        @Override
+        public void visit(DoStmt statement, Void arg) {
+            facts.flow.add(new LoopStart());
+            statement.getBody().accept(this, arg);
+            statement.getCondition().accept(this, arg);
+            facts.flow.add(END);
+        }
+
+        @Override
+        public void visit(SwitchStmt statement, Void arg) {
+            facts.flow.add(new ConditionalStart());
+            super.visit(statement, arg);
+            facts.flow.add(END);
+        }
+
+        @Override
+        public void visit(SwitchExpr expression, Void arg) {
+            facts.flow.add(new ConditionalStart());
+            super.visit(expression, arg);
+            facts.flow.add(END);
+        }
+
+        @Override
+        public void visit(CatchClause clause, Void arg) {
+            facts.flow.add(new ConditionalStart());
+            super.visit(clause, arg);
+            facts.flow.add(END);
+        }
+
+        @Override
+        public void visit(ConditionalExpr expression, Void arg) {
+            facts.flow.add(new ConditionalStart());
+            super.visit(expression, arg);
+            facts.flow.add(END);
+        }
+
+        @Override
+        public void visit(ForEachStmt statement, Void arg) {
+            statement.getVariable().getElementType().accept(this, arg);
+            statement.getIterable().accept(this, arg);
+            facts.flow.add(new LoopStart());
+            List<Source> iterable = sourcesOf(statement.getIterable());
+            for (VariableDeclarator variable : statement.getVariable().getVariables()) {
+                Position begin = begin(variable);
+                facts.flow.add(new VariableFact(variable.getNameAsString(), begin.line, begin.column, iterable, false));
+            }
+            statement.getBody().accept(this, arg);
+            facts.flow.add(END);
+        }
+
+        // ---------- 声明、赋值、调用和return ----------
+
+        @Override
+        public void visit(VariableDeclarator declarator, Void arg) {
+            super.visit(declarator, arg);
+            Position begin = begin(declarator);
+            facts.flow.add(new VariableFact(declarator.getNameAsString(), begin.line, begin.column,
+                    declarator.getInitializer().map(Extractor::sourcesOf).orElse(null),
+                    declarator.getParentNode().orElse(null) instanceof FieldDeclaration));
+        }
+
+        @Override
+        public void visit(AssignExpr assign, Void arg) {
+            assign.getValue().accept(this, arg);
+            assign.getTarget().accept(this, arg);
+            Expression target = assign.getTarget();
+            while (target instanceof EnclosedExpr enclosed) {
+                target = enclosed.getInner();
+            }
+            TargetKind kind = TargetKind.OTHER;
+            String name = null;
+            if (target instanceof NameExpr nameExpr) {
+                kind = TargetKind.NAME;
+                name = nameExpr.getNameAsString();
+            } else if (target instanceof FieldAccessExpr fieldAccess && fieldAccess.getScope().isThisExpr()) {
+                kind = TargetKind.THIS_FIELD;
+                name = fieldAccess.getNameAsString();
+            } else if (target instanceof ArrayAccessExpr arrayAccess && arrayAccess.getName() instanceof NameExpr array) {
+                kind = TargetKind.ARRAY_ELEMENT;
+                name = array.getNameAsString();
+            }
+            boolean compound = assign.getOperator() != AssignExpr.Operator.ASSIGN;
+            Position begin = begin(assign);
+            facts.flow.add(new AssignmentFact(kind, name, kind == TargetKind.NAME || kind == TargetKind.THIS_FIELD ? null : target.toString(),
+                    sourcesOf(assign.getValue()), compound ? sourcesOf(assign.getTarget()) : List.of(), begin.line, begin.column));
+        }
+
+        @Override
+        public void visit(MethodCallExpr call, Void arg) {
+            super.visit(call, arg);
+            Position begin = call.getBegin().orElse(new Position(0, 0));
+            Position end = call.getEnd().orElse(new Position(0, 0));
+            String name = call.getNameAsString();
+            int argumentCount = call.getArguments().size();
+            String siteKey = path == null || call.getBegin().isEmpty() ? null
+                    : path + ":" + begin.line + ":" + begin.column + ":" + name + "/" + argumentCount;
+            List<ArgumentFact> arguments = new ArrayList<>(argumentCount);
+            for (Expression argument : call.getArguments()) {
+                Position argumentBegin = begin(argument);
+                arguments.add(new ArgumentFact(argument.toString(), argumentBegin.line, argumentBegin.column, sourcesOf(argument)));
+            }
+            CallFact fact = new CallFact(facts.callExpressions.size(), name, symbols.intern(name), argumentCount,
+                    classes.isEmpty() ? "" : classes.peek().getNameAsString(),
+                    begin.line, begin.column, end.line, end.column, siteKey,
+                    arguments, call.getScope().map(Extractor::sourcesOf).orElse(null));
+            facts.callExpressions.add(call);
+            facts.calls.add(fact);
+            for (MethodFact method : enclosingMethods) {
+                method.calls().add(fact);
+            }
+            facts.flow.add(fact);
+        }
+
+        @Override
+        public void visit(ReturnStmt statement, Void arg) {
+            super.visit(statement, arg);
+            statement.getExpression().ifPresent(expression -> facts.flow.add(new ReturnFact(sourcesOf(expression))));
+        }
+
+        // ---------- 出现的类型名 ----------
+
+        @Override
+        public void visit(ClassOrInterfaceType type, Void arg) {
+            super.visit(type, arg);
+            facts.referencedNames.add(type.getNameAsString());
+        }
+
+        @Override
+        public void visit(NameExpr name, Void arg) {
+            super.visit(name, arg);
+            facts.referencedNames.add(name.getNameAsString());
+        }
+
+        // ---------- 值的来源 ----------
+
+        // 表达式的值来自哪里；名称要到重放时才知道是局部变量还是成员变量，这里只记下名称
+        private static List<Source> sourcesOf(Expression expression) {
+            if (expression instanceof NameExpr nameExpr) {
+                return List.of(new NameSource(nameExpr.getNameAsString()));
+            }
+            if (expression instanceof MethodCallExpr call) {
+                Position end = call.getEnd().orElse(new Position(0, 0));
+                return List.of(new CallResultSource(call.getNameAsString(), end.line, end.column));
+            }
+            if (expression instanceof LiteralExpr literal) {
+                Position begin = begin(literal);
+                return List.of(new LiteralSource(literal.toString(), begin.line, begin.column));
+            }
+            if (expression instanceof AssignExpr assign) {
+                // 赋值表达式的值就是赋值之后的目标，它的AssignmentFact在使用它的事实之前
+                return sourcesOf(assign.getTarget());
+            }
+            if (expression instanceof ConditionalExpr conditional) {
+                List<Source> result = new ArrayList<>(sourcesOf(conditional.getThenExpr()));
+                result.addAll(sourcesOf(conditional.getElseExpr()));
+                return result;
+            }
+            if (expression instanceof FieldAccessExpr fieldAccess) {
+                if (fieldAccess.getScope().isThisExpr()) {
+                    return List.of(new ThisFieldSource(fieldAccess.getNameAsString()));
+                }
+                Position begin = begin(fieldAccess);
+                return List.of(new ExpressionSource(fieldAccess.toString(), begin.line, begin.column, sourcesOf(fieldAccess.getScope())));
+            }
+            if (expression instanceof ObjectCreationExpr creation) {
+                List<Source> inputs = new ArrayList<>();
+                for (Expression argument : creation.getArguments()) {
+                    inputs.addAll(sourcesOf(argument));
+                }
+                Position begin = begin(creation);
+                return List.of(new ExpressionSource("new " + creation.getType().asString(), begin.line, begin.column, inputs));
+            }
+            if (expression instanceof LambdaExpr || expression instanceof MethodReferenceExpr) {
+                return List.of();
+            }
+            // 其他表达式(运算、类型转换、括号、数组访问和创建等)的值来自它的子表达式
+            List<Source> result = new ArrayList<>();
+            for (Node child : expression.getChildNodes()) {
+                if (child instanceof Expression childExpression) {
+                    result.addAll(sourcesOf(childExpression));
+                }
+            }
+            return result;
+        }
+
+        private static int line(Node node) {
+            return node.getBegin().map(position -> position.line).orElse(0);
+        }
+
+        private static Position begin(Node node) {
+            return node.getBegin().orElse(new Position(0, 0));
+        }
+    }
+}
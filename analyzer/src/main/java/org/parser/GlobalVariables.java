@@ -3,11 +3,13 @@ package org.parser;
 import com.github.javaparser.JavaParser;
 import com.github.javaparser.ParserConfiguration;
 import com.github.javaparser.symbolsolver.JavaSymbolSolver;
-import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
-import com.github.javaparser.symbolsolver.resolution.typesolvers.JavaParserTypeSolver;
-import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
+import com.github.javaparser.symbolsolver.model.resolution.TypeSolver;
 
-import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 
 //单例模式
@@ -16,12 +18,25 @@ public class GlobalVariables {
     private static String projectPath;
     public static com.github.javaparser.JavaParser CONFIGURED_PARSER;
     private static Scanner scanner;
+    private static int parseThreads;
+    private static String cachePath;
+    private static boolean cacheEnabled = false; // 默认不使用分析缓存，命令行参数--cache打开
+    // 符号解析器缓存，按源代码根目录共用；上限见setTypeSolverCacheLimits
+    private static final Map<Path, TypeSolverCaches> typeSolverCaches = new LinkedHashMap<>();
+    private static long typeSolverMaxParsedLines = 1_000_000;
+    private static long typeSolverMaxEntries = 10_000;
+    // 类名、方法名和签名的符号表，所有被分析的包共用
+    private static final SymbolTable symbolTable = new SymbolTable();
 
     //将构造函数声明为私有的，是为了不让外界调用构造函数
     private GlobalVariables() {
         // nothing
     }
 
+    public static SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
     public static String getProjectPath() {
         if (projectPath == null) {
             projectPath = "src/main/java/";
@@ -29,19 +44,98 @@ public class GlobalVariables {
         return projectPath;
     }
 
+    //修改被分析项目的源代码根目录，之前按旧目录配置的解析器作废
+    public static void setProjectPath(String path) {
+        projectPath = path;
+        CONFIGURED_PARSER = null;
+    }
+
+    //分析缓存所在的目录，没有指定时放在被分析项目的根目录下，而不是当前工作目录
+    public static String getCachePath() {
+        if (cachePath == null) {
+            return getProjectRoot().resolve(".analyzer-cache").toString();
+        }
+        return cachePath;
+    }
+
+    //被分析项目的根目录：源代码根目录是Maven布局的src/main/java时取它上面三层，否则就是源代码根目录本身
+    public static Path getProjectRoot() {
+        Path sourceRoot = Path.of(getProjectPath()).toAbsolutePath().normalize();
+        if (sourceRoot.endsWith(Path.of("src", "main", "java")) && sourceRoot.getNameCount() > 3) {
+            return sourceRoot.getParent().getParent().getParent();
+        }
+        return sourceRoot;
+    }
+
+    public static void setCachePath(String path) {
+        cachePath = path;
+    }
+
+    public static boolean isCacheEnabled() {
+        return cacheEnabled;
+    }
+
+    public static void setCacheEnabled(boolean enabled) {
+        cacheEnabled = enabled;
+    }
+
     public static com.github.javaparser.JavaParser getJavaParser() {
         if (CONFIGURED_PARSER == null) {
-            CombinedTypeSolver combinedTypeSolver = new CombinedTypeSolver();
-            combinedTypeSolver.add(new ReflectionTypeSolver());
-            combinedTypeSolver.add(new JavaParserTypeSolver(new File(getProjectPath())));
-            JavaSymbolSolver symbolSolver = new JavaSymbolSolver(combinedTypeSolver);
+            CONFIGURED_PARSER = createJavaParser();
+        }
+        return CONFIGURED_PARSER;
+    }
+
+    //每次调用都新建一个带有独立符号解析器的JavaParser。JavaParser和JavaSymbolSolver都不是线程安全的，并行解析时每个线程各用一个
+    //符号解析器的缓存不随解析器新建，同一个根目录的解析器共用getTypeSolverCaches()
+    public static com.github.javaparser.JavaParser createJavaParser() {
+        return createJavaParser(getTypeSolverCaches().createTypeSolver());
+    }
 
-            ParserConfiguration parserConfig = new ParserConfiguration();
-            parserConfig.setSymbolResolver(symbolSolver);
+    //使用指定类型解析器的JavaParser，多模块分析时每个模块用自己的类型解析器
+    public static com.github.javaparser.JavaParser createJavaParser(TypeSolver typeSolver) {
+        JavaSymbolSolver symbolSolver = new JavaSymbolSolver(typeSolver);
 
-            CONFIGURED_PARSER = new JavaParser(parserConfig);
+        ParserConfiguration parserConfig = new ParserConfiguration();
+        parserConfig.setSymbolResolver(symbolSolver);
+
+        return new JavaParser(parserConfig);
+    }
+
+    //当前项目根目录对应的符号解析器缓存，第一次使用时按当前的上限创建
+    public static TypeSolverCaches getTypeSolverCaches() {
+        return getTypeSolverCaches(Path.of(getProjectPath()));
+    }
+
+    //指定源代码根目录对应的符号解析器缓存
+    public static synchronized TypeSolverCaches getTypeSolverCaches(Path sourceRoot) {
+        return typeSolverCaches.computeIfAbsent(sourceRoot.toAbsolutePath().normalize(),
+                root -> new TypeSolverCaches(sourceRoot, typeSolverMaxParsedLines, typeSolverMaxEntries));
+    }
+
+    //已经创建的所有符号解析器缓存，多模块分析时每个根目录一个
+    public static synchronized List<TypeSolverCaches> getAllTypeSolverCaches() {
+        return new ArrayList<>(typeSolverCaches.values());
+    }
+
+    //设置符号解析器缓存的上限：缓存的AST总行数、目录和类型查找结果的项数；已经创建的缓存丢弃，下次使用时按新上限创建
+    public static synchronized void setTypeSolverCacheLimits(long maxParsedLines, long maxEntries) {
+        typeSolverMaxParsedLines = maxParsedLines;
+        typeSolverMaxEntries = maxEntries;
+        typeSolverCaches.clear();
+        CONFIGURED_PARSER = null;
+    }
+
+    //并行解析使用的线程数，默认等于CPU核数
+    public static int getParseThreads() {
+        if (parseThreads <= 0) {
+            parseThreads = Runtime.getRuntime().availableProcessors();
         }
-        return CONFIGURED_PARSER;
+        return parseThreads;
+    }
+
+    public static void setParseThreads(int threads) {
+        parseThreads = threads;
     }
 
     public static Scanner getScanner()
@@ -0,0 +1,50 @@
+package org.parser;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+// GraphML格式，节点带method、class、depth、role四个属性
+public class GraphMLSink extends ChannelSink {
+
+    public GraphMLSink(WritableByteChannel channel) {
+        super(channel);
+    }
+
+    @Override
+    public void begin(CallGraphStore callGraph, int sourceId) throws IOException {
+        super.begin(callGraph, sourceId);
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        out.write("<graphml xmlns=\"http://graphml.graphdrawing.org/xmlns\">\n");
+        out.write("  <key id=\"method\" for=\"node\" attr.name=\"method\" attr.type=\"string\"/>\n");
+        out.write("  <key id=\"class\" for=\"node\" attr.name=\"class\" attr.type=\"string\"/>\n");
+        out.write("  <key id=\"depth\" for=\"node\" attr.name=\"depth\" attr.type=\"int\"/>\n");
+        out.write("  <key id=\"role\" for=\"node\" attr.name=\"role\" attr.type=\"string\"/>\n");
+        out.write("  <graph id=\"calls\" edgedefault=\"directed\">\n");
+    }
+
+    @Override
+    public void node(int methodId, int depth, CallAdjacency.Direction direction) throws IOException {
+        out.write("    <node id=\"m" + methodId + "\">"
+                + "<data key=\"method\">" + escape(callGraph.getMethodName(methodId)) + "</data>"
+                + "<data key=\"class\">" + escape(callGraph.getQualifiedClassName(methodId)) + "</data>"
+                + "<data key=\"depth\">" + depth + "</data>"
+                + "<data key=\"role\">" + role(direction) + "</data>"
+                + "</node>\n");
+    }
+
+    @Override
+    public void edge(int callerId, int calleeId) throws IOException {
+        out.write("    <edge source=\"m" + callerId + "\" target=\"m" + calleeId + "\"/>\n");
+    }
+
+    @Override
+    public void end() throws IOException {
+        out.write("  </graph>\n");
+        out.write("</graphml>\n");
+        out.flush();
+    }
+
+    private static String escape(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+}
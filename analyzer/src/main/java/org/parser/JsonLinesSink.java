@@ -0,0 +1,50 @@
+package org.parser;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+// JSON Lines格式：每行一个JSON对象，type为node或edge
+public class JsonLinesSink extends ChannelSink {
+
+    public JsonLinesSink(WritableByteChannel channel) {
+        super(channel);
+    }
+
+    @Override
+    public void node(int methodId, int depth, CallAdjacency.Direction direction) throws IOException {
+        out.write("{\"type\":\"node\",\"id\":" + methodId
+                + ",\"method\":" + quote(callGraph.getMethodName(methodId))
+                + ",\"class\":" + quote(callGraph.getQualifiedClassName(methodId))
+                + ",\"depth\":" + depth
+                + ",\"role\":\"" + role(direction) + "\"}\n");
+    }
+
+    @Override
+    public void edge(int callerId, int calleeId) throws IOException {
+        out.write("{\"type\":\"edge\",\"caller\":" + callerId + ",\"callee\":" + calleeId + "}\n");
+    }
+
+    @Override
+    public void end() throws IOException {
+        out.flush();
+    }
+
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"' -> quoted.append("\\\"");
+                case '\\' -> quoted.append("\\\\");
+                case '\n' -> quoted.append("\\n");
+                default -> {
+                    if (c < 0x20) {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+                }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
@@ -0,0 +1,128 @@
+package org.parser;
+
+import com.github.javaparser.symbolsolver.cache.Cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/*
+符号解析器使用的有界缓存，实现symbol-solver的Cache接口，可以直接交给JavaParserTypeSolver和CombinedTypeSolver。
+每一项有一个权重(默认为1)，总权重超过上限时按最近最少使用的顺序淘汰；同时统计命中、未命中和淘汰的次数。
+同一个缓存会被多个分析、多个线程共用，所有方法都加锁。
+ */
+public class LruCache<K, V> implements Cache<K, V> {
+    private final String name;
+    private final long maxWeight;
+    private final ToLongFunction<V> weigher;
+    private final LinkedHashMap<K, V> entries = new LinkedHashMap<>(16, 0.75f, true); // 按访问顺序排列，第一项最久未使用
+    private long weight;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    // 每一项权重为1，即最多保存maxEntries项
+    public LruCache(String name, long maxEntries) {
+        this(name, maxEntries, value -> 1);
+    }
+
+    public LruCache(String name, long maxWeight, ToLongFunction<V> weigher) {
+        this.name = name;
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    @Override
+    public synchronized void put(K key, V value) {
+        V old = entries.put(key, value);
+        if (old != null) {
+            weight -= weigher.applyAsLong(old);
+        }
+        weight += weigher.applyAsLong(value);
+        // 刚放入的一项排在最后，至少保留它，单独一项超过上限时也能使用
+        Iterator<Map.Entry<K, V>> iterator = entries.entrySet().iterator();
+        while (weight > maxWeight && entries.size() > 1) {
+            Map.Entry<K, V> eldest = iterator.next();
+            weight -= weigher.applyAsLong(eldest.getValue());
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    @Override
+    public synchronized Optional<V> get(K key) {
+        V value = entries.get(key);
+        if (value == null) {
+            misses++;
+            return Optional.empty();
+        }
+        hits++;
+        return Optional.of(value);
+    }
+
+    @Override
+    public synchronized void remove(K key) {
+        V old = entries.remove(key);
+        if (old != null) {
+            weight -= weigher.applyAsLong(old);
+        }
+    }
+
+    // 删除键满足条件的所有项，例如监视模式下某个文件变化后删除它的AST
+    public synchronized void removeIf(Predicate<K> predicate) {
+        Iterator<Map.Entry<K, V>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<K, V> entry = iterator.next();
+            if (predicate.test(entry.getKey())) {
+                weight -= weigher.applyAsLong(entry.getValue());
+                iterator.remove();
+            }
+        }
+    }
+
+    @Override
+    public synchronized void removeAll() {
+        entries.clear();
+        weight = 0;
+    }
+
+    @Override
+    public synchronized boolean contains(K key) {
+        return entries.containsKey(key);
+    }
+
+    @Override
+    public synchronized long size() {
+        return entries.size();
+    }
+
+    @Override
+    public synchronized boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return name + ": " + entries.size() + "项, 权重" + weight + "/" + maxWeight
+                + ", 命中" + hits + "次, 未命中" + misses + "次, 淘汰" + evictions + "次";
+    }
+}
@@ -1,28 +1,238 @@
 package org.parser;
 
 import com.github.javaparser.ast.type.Type;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.stream.IntStream;
 
 class MethodCallAnalyzer {
+    private static final int DEFAULT_PORT = 8421;
+
+    // 流式输出的格式和文件，outputFormat为null时按原来的文本格式输出
+    private String outputFormat;
+    private String outputFile;
+    // 查询结束后是否输出分析统计
+    private boolean printMetrics;
+
     public static void main(String[] args) {
+        // --watch: 监视模式，分析完成后继续监视源文件的变化并增量更新，可以反复查询
+        // --lazy: 懒加载模式，只链接查询涉及的方法，不能和--watch同时使用
+        // --batch [文件]: 批量查询模式，从文件(省略时从标准输入)逐行读取查询，不能和其他模式同时使用
+        // --serve [端口]: 服务器模式，在本机端口(默认8421)上通过HTTP回答查询，不能和其他模式同时使用
+        // --format jsonl|dot|graphml [--output 文件]: 查询结果按指定格式边遍历边输出到文件(默认标准输出)
+        // --cache: 使用分析缓存(默认不使用)，缓存放在被分析项目根目录下的.analyzer-cache中，再次运行时只重新解析有变化的文件
+        // --metrics: 退出前输出各阶段耗时、解析失败原因和缓存命中情况；运行中也可以用JMX客户端查看
+        // --modules pom.xml | --roots 目录[:目录...]: 多模块分析，分析pom.xml中的所有模块或给出的所有源代码根目录，
+        //     查询中的包名不再用来选择目录；可以和--batch、--format、--metrics同时使用
+        List<String> options = Arrays.asList(args);
+        boolean watchMode = options.contains("--watch");
+        boolean lazyMode = options.contains("--lazy");
+        boolean batchMode = options.contains("--batch");
+        boolean serveMode = options.contains("--serve");
+        GlobalVariables.setCacheEnabled(options.contains("--cache"));
+        if (watchMode && lazyMode) {
+            System.out.println("--watch 和 --lazy 不能同时使用");
+            System.exit(1);
+        }
+        if ((batchMode || serveMode) && (watchMode || lazyMode || (batchMode && serveMode))) {
+            System.out.println("--batch 和 --serve 不能和其他模式同时使用");
+            System.exit(1);
+        }
+        List<SourceModule> modules = null;
+        if (options.contains("--modules") || options.contains("--roots")) {
+            if (watchMode || lazyMode || serveMode) {
+                System.out.println("--modules 和 --roots 不能和 --watch、--lazy、--serve 同时使用");
+                System.exit(1);
+            }
+            modules = discoverModules(optionValue(args, "--modules"), optionValue(args, "--roots"));
+        }
+        if (serveMode) {
+            serve(optionValue(args, "--serve"));
+            return;
+        }
+        if (batchMode) {
+            System.exit(batchAnalyze(optionValue(args, "--batch"), modules));
+        }
+        MethodCallAnalyzer analyzer = new MethodCallAnalyzer(); // 创建 analyzer
+        analyzer.outputFormat = optionValue(args, "--format");
+        analyzer.outputFile = optionValue(args, "--output");
+        analyzer.printMetrics = options.contains("--metrics");
+        if (analyzer.outputFormat != null && !List.of("jsonl", "dot", "graphml").contains(analyzer.outputFormat)) {
+            System.out.println("不支持的输出格式: " + analyzer.outputFormat + "(可选jsonl、dot、graphml)");
+            System.exit(1);
+        }
+
         System.out.println("请依次输入方法名、所属类、查找深度（格式如：introduction, main.Test, 2）："); // 输出提示信息
         String userInput = GlobalVariables.getScanner().nextLine(); // 从 scanner 中获取用户输入字符串
         userInput = userInput.replaceAll("\\s", ""); // 去除空白符
 
         try {
             userInputFormat input=resolveUserInput(userInput);
-            MethodCallAnalyzer analyzer = new MethodCallAnalyzer(); // 创建 analyzer
-            analyzer.analyzeMethodCall(input); // 分析用户输入
+            if (watchMode) {
+                analyzer.watchAndAnalyze(input);
+            } else {
+                ProjectAnalyzer projectAnalyzer = modules != null
+                        ? new ProjectAnalyzer("modules", modules)
+                        : new ProjectAnalyzer(input.packageName, lazyMode);
+                analyzer.analyzeMethodCall(projectAnalyzer, input); // 分析用户输入
+                analyzer.printMetrics(projectAnalyzer);
+            }
         }catch (UserInputException e){
             System.out.println(e.getMessage());
             System.exit(1);
         }
     }
 
+    // 监视模式：只分析一次项目，后台线程监视源文件变化并增量更新，前台循环读取查询，输入exit或输入结束时退出
+    private void watchAndAnalyze(userInputFormat firstInput) {
+        ProjectAnalyzer projectAnalyzer = new ProjectAnalyzer(firstInput.packageName);
+        try (SourceWatcher watcher = new SourceWatcher(projectAnalyzer)) {
+            Thread watcherThread = new Thread(watcher, "source-watcher");
+            watcherThread.setDaemon(true);
+            watcherThread.start();
+
+            userInputFormat input = firstInput;
+            while (true) {
+                if (input != null) {
+                    if (input.packageName.equals(projectAnalyzer.getPackageName())) {
+                        analyzeMethodCall(projectAnalyzer, input);
+                    } else {
+                        System.out.println("监视模式只分析包 " + projectAnalyzer.getPackageName());
+                    }
+                }
+                System.out.println("请输入下一个查询（输入exit退出）：");
+                if (!GlobalVariables.getScanner().hasNextLine()) {
+                    break;
+                }
+                String userInput = GlobalVariables.getScanner().nextLine().replaceAll("\\s", "");
+                if (userInput.equals("exit")) {
+                    break;
+                }
+                // 选择重载方法后行尾留下的空行直接跳过
+                try {
+                    input = userInput.isEmpty() ? null : resolveUserInput(userInput);
+                } catch (UserInputException e) {
+                    System.out.println(e.getMessage());
+                    input = null;
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("无法监视源代码目录: " + e.getMessage());
+        }
+        printMetrics(projectAnalyzer);
+    }
+
+    // 指定了--metrics时输出分析统计和缓存命中情况
+    private void printMetrics(ProjectAnalyzer projectAnalyzer) {
+        if (!printMetrics) {
+            return;
+        }
+        System.out.print(projectAnalyzer.getMetrics().getSummary());
+        System.out.println(projectAnalyzer.getTypeResolutionCache());
+        System.out.println(projectAnalyzer.getParsedFileCache());
+        for (TypeSolverCaches caches : GlobalVariables.getAllTypeSolverCaches()) {
+            System.out.println(caches);
+        }
+        System.out.println(projectAnalyzer.getCallGraph().getCondensation());
+        // 可达性索引平时只在服务器模式的/reach查询时构建，这里构建一次来报告它的构建时间和内存
+        if (!projectAnalyzer.isLazy()) {
+            System.out.println(projectAnalyzer.getReachabilityIndex());
+        }
+    }
+
+
+    // 选项后面跟着的值，没有值时返回null
+    private static String optionValue(String[] args, String option) {
+        int index = Arrays.asList(args).indexOf(option);
+        return index >= 0 && index + 1 < args.length && !args[index + 1].startsWith("--") ? args[index + 1] : null;
+    }
+
+    // 服务器模式，一直运行直到进程被结束
+    private static void serve(String port) {
+        try {
+            AnalysisServer server = new AnalysisServer(port == null ? DEFAULT_PORT : Integer.parseInt(port),
+                    Runtime.getRuntime().availableProcessors());
+            server.start();
+            System.out.println("分析服务已启动: http://localhost:" + server.getPort() + "/query?q=introduction,main.Test,2");
+        } catch (NumberFormatException e) {
+            System.out.println("端口格式错误: " + port);
+            System.exit(1);
+        } catch (IOException e) {
+            System.out.println("无法启动分析服务: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    // 多模块分析的模块：pomFile不为null时从pom.xml查找，否则使用roots中用路径分隔符隔开的源代码根目录
+    private static List<SourceModule> discoverModules(String pomFile, String roots) {
+        try {
+            if (pomFile != null) {
+                List<SourceModule> modules = ModuleDiscovery.fromPom(Path.of(pomFile));
+                System.out.println("找到" + modules.size() + "个模块");
+                return modules;
+            }
+            if (roots != null) {
+                List<Path> sourceRoots = new ArrayList<>();
+                for (String root : roots.split(File.pathSeparator)) {
+                    sourceRoots.add(Path.of(root));
+                }
+                return ModuleDiscovery.fromRoots(sourceRoots);
+            }
+            System.out.println("--modules 后面要写pom.xml的路径，--roots 后面要写源代码根目录");
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("无法读取模块: " + e.getMessage());
+        }
+        System.exit(1);
+        return null;
+    }
+
+    // 批量查询模式，queryFile为null时从标准输入读取；全部查询成功时返回0
+    // modules不为null时所有查询共用一个多模块分析
+    private static int batchAnalyze(String queryFile, List<SourceModule> modules) {
+        BatchQueryRunner runner;
+        if (modules != null) {
+            Supplier<ProjectAnalyzer> sharedAnalyzer = Suppliers.memoize(() -> new ProjectAnalyzer("modules", modules));
+            runner = new BatchQueryRunner(System.out, Runtime.getRuntime().availableProcessors(), packageName -> sharedAnalyzer.get());
+        } else {
+            runner = new BatchQueryRunner(System.out, Runtime.getRuntime().availableProcessors());
+        }
+        try (BufferedReader reader = queryFile == null
+                ? new BufferedReader(new InputStreamReader(System.in))
+                : Files.newBufferedReader(Path.of(queryFile))) {
+            return runner.run(reader) == 0 ? 0 : 2;
+        } catch (IOException e) {
+            System.out.println("无法读取查询: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    static userInputFormat resolveUserInput(String userInput) throws UserInputException {
+        // 方法名后面可以用括号写出参数类型来直接选择重载，例如 introduction(String,String), main.Test, 2
+        // 参数类型中可能有逗号，先把括号部分取出来
+        String parameterTypes = null;
+        int open = userInput.indexOf('(');
+        if (open >= 0) {
+            int close = userInput.lastIndexOf(')');
+            if (close < open || userInput.indexOf(',') < open) {
+                throw new UserInputException("参数 1 格式错误");
+            }
+            parameterTypes = userInput.substring(open, close + 1);
+            userInput = userInput.substring(0, open) + userInput.substring(close + 1);
+        }
 
-    private static userInputFormat resolveUserInput(String userInput) throws UserInputException {
         // 用 ',' 分割用户输入字符串
         String[] parts = userInput.split(",");
         if (parts.length != 3) {
@@ -51,44 +261,92 @@ class MethodCallAnalyzer {
             throw new UserInputException("参数 3 格式错误");
         }
 
-        return new userInputFormat(methodName, packageName, className, depth);
+        return new userInputFormat(methodName, packageName, className, depth, parameterTypes);
     }
 
 
-    //自定义记录
-    private record userInputFormat(String methodName, String packageName, String className, int depth) {}
-
-    private void analyzeMethodCall(userInputFormat userInput) {
-        // 创建分析器进行分析
-        ProjectAnalyzer projectAnalyzer = new ProjectAnalyzer(userInput.packageName);
+    //自定义记录，parameterTypes是输入中指定的重载方法的参数类型，没有指定时为null
+    record userInputFormat(String methodName, String packageName, String className, int depth, String parameterTypes) {}
 
-        //JieChu: 判断用户输入的方法是否存在重载
-        Map.Entry<Boolean, List<MethodInfo>> functionOverloadChecked = projectAnalyzer.checkFunctionOverload(userInput.methodName, userInput.className);
-        //若有方法重载，则用户选择一个重载的方法，此被选择的方法的参数列表存在变量chosenReloadMethodParams中
-        Map<String,Type> chosenReloadMethodParams=null;
-        //存在重载
-        if(functionOverloadChecked.getKey())
-        {
+    private void analyzeMethodCall(ProjectAnalyzer projectAnalyzer, userInputFormat userInput) {
+        //输入中已经写了参数类型时直接按参数类型选择重载，不需要交互
+        String parameterTypes = userInput.parameterTypes;
+        //否则记下选出的方法本身，选择和查询之间监视模式替换了文件时查询会发现方法已经不在了，不会换成另一个重载
+        MethodInfo chosenMethod = null;
+        if (parameterTypes == null) {
+            //JieChu: 判断用户输入的方法是否存在重载
+            Map.Entry<Boolean, List<MethodInfo>> functionOverloadChecked = projectAnalyzer.checkFunctionOverload(userInput.methodName, userInput.className);
+            if (functionOverloadChecked == null) {
+                System.out.println("没有找到方法 " + userInput.className + "." + userInput.methodName);
+                return;
+            }
+            //存在重载，则用户选择一个重载的方法，否则就是唯一的同名方法
             List<MethodInfo> reloadMethods=functionOverloadChecked.getValue();
-            printReloadMethodParams(reloadMethods);
+            chosenMethod=reloadMethods.get(0);
+            if(functionOverloadChecked.getKey())
+            {
+                printReloadMethodParams(reloadMethods);
+
+                int choice = getReloadMethodChoice(reloadMethods.size());
+                chosenMethod=reloadMethods.get(choice);
+            }
+            parameterTypes=OverloadIndex.parameterKey(chosenMethod);
+        }
+
+        boolean found;
+        if (outputFormat == null) {
+            found = chosenMethod != null
+                    ? projectAnalyzer.analyzeSpecificMethod(chosenMethod, userInput.className, userInput.depth)
+                    : projectAnalyzer.analyzeSpecificMethod(userInput.methodName, userInput.className, userInput.depth, parameterTypes);
+        } else {
+            try (CallGraphSink sink = CallGraphSink.create(outputFormat, openOutputChannel())) {
+                found = chosenMethod != null
+                        ? projectAnalyzer.exportSpecificMethod(chosenMethod, userInput.depth, sink)
+                        : projectAnalyzer.exportSpecificMethod(userInput.methodName, userInput.className, userInput.depth, parameterTypes, sink);
+            } catch (IOException e) {
+                System.out.println("无法输出结果: " + e.getMessage());
+                return;
+            }
+        }
+        if (!found) {
+            System.out.println("没有找到方法 " + userInput.className + "." + userInput.methodName + (parameterTypes == null ? "" : parameterTypes));
+        }
+    }
 
-            int choice = getReloadMethodChoice(reloadMethods.size());
-            MethodInfo chosenMethod=reloadMethods.get(choice);
-            chosenReloadMethodParams=chosenMethod.getParamList();
+    // 输出文件的通道；没有指定文件时输出到标准输出，关闭通道时只刷新不关闭System.out
+    private WritableByteChannel openOutputChannel() throws IOException {
+        if (outputFile != null) {
+            return FileChannel.open(Path.of(outputFile), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
         }
+        return Channels.newChannel(new FilterOutputStream(System.out) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
 
-        //假如没有方法重载，则程序不会提示用户选择重载的方法的参数列表，且传入下面方法的chosenReloadMethodParams参数也会为null
-        projectAnalyzer.analyzeSpecificMethod(userInput.methodName, userInput.className, userInput.depth, chosenReloadMethodParams);
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        });
     }
 
 
     private void printReloadMethodParams(List<MethodInfo> reloadMethodInfo) {
+        System.out.print(formatReloadMethodParams(reloadMethodInfo));
+    }
+
+    // 重载方法的列表，每个方法一个序号，服务器模式下也用这个格式返回给客户端
+    static String formatReloadMethodParams(List<MethodInfo> reloadMethodInfo) {
+        StringBuilder result = new StringBuilder();
         IntStream.range(0, reloadMethodInfo.size()).forEach(i -> {
             MethodInfo methodInfo=reloadMethodInfo.get(i);
             Map<String,Type> paramList=methodInfo.getParamList();
-            System.out.println("方法 " + i +"  " + methodInfo.getMethodName() + ":");
-            paramList.forEach((paramName, type) -> System.out.println("\t参数名: " + paramName + ", 类型: " + type));
+            // 方法名后面是参数类型列表，查询时写在方法名后面可以直接选择这个重载
+            result.append("方法 ").append(i).append("  ").append(methodInfo.getMethodName()).append(OverloadIndex.parameterKey(methodInfo)).append(":\n");
+            paramList.forEach((paramName, type) -> result.append("\t参数名: ").append(paramName).append(", 类型: ").append(type).append('\n'));
         });
+        return result.toString();
     }
 
 
@@ -0,0 +1,107 @@
+package org.parser;
+
+import com.github.javaparser.resolution.declarations.ResolvedMethodDeclaration;
+import com.github.javaparser.resolution.types.ResolvedType;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+方法签名索引：签名为“全限定类名#方法名(擦除后的参数类型)”，索引是按签名在符号表中的编号排列的数组(SymbolArray)，
+链接调用关系时查一次符号表得到编号，之后按编号直接取出方法，不再遍历所有方法。
+同时维护调用点的名称过滤(CallPrefilter)和无法解析的调用点(负缓存)：
+负缓存的键是“文件路径:行:列:方法名/实参个数”，监视模式下没有变化的文件重新解析时，之前解析失败的调用点直接跳过；
+文件变化后用forgetUnresolvable删除这个文件的记录，项目中新增了方法名时删除调用这些方法名的记录，它们可能因此解析成功。
+多模块分析时各模块在自己的线程中加入方法和查找调用目标，所有的表都是线程安全的。
+ */
+public class MethodIndex {
+    private final SymbolArray<MethodInfo> methodsBySignature = new SymbolArray<>(); // 签名符号 -> 方法
+    private final TypeResolutionCache typeResolutionCache;
+    private final CallPrefilter prefilter = new CallPrefilter();
+    private final Map<String, String> unresolvableCalls = new ConcurrentHashMap<>(); // 调用点 -> 被调用的方法名
+
+    public MethodIndex(List<MethodInfo> allMethods, TypeResolutionCache typeResolutionCache) {
+        this.typeResolutionCache = typeResolutionCache;
+        for (MethodInfo methodInfo : allMethods) {
+            put(methodInfo);
+        }
+    }
+
+    public void put(MethodInfo methodInfo) {
+        int signature = methodInfo.getSignatureSymbol();
+        if (signature >= 0 && methodsBySignature.putIfAbsent(signature, methodInfo) == null) {
+            prefilter.add(methodInfo);
+        }
+    }
+
+    // 只有当签名对应的正是这个方法时才删除
+    public void remove(MethodInfo methodInfo) {
+        int signature = methodInfo.getSignatureSymbol();
+        if (signature >= 0 && methodsBySignature.remove(signature, methodInfo)) {
+            prefilter.remove(methodInfo);
+        }
+    }
+
+    // 根据签名符号查找项目中的方法，找不到(例如JDK或第三方库中的方法，签名不在符号表中时编号为-1)时返回null
+    public MethodInfo get(int signatureSymbol) {
+        return methodsBySignature.get(signatureSymbol);
+    }
+
+    public int size() {
+        return methodsBySignature.size();
+    }
+
+    // 只看语法判断调用是否可能调用索引中的方法，返回false时不需要解析
+    public boolean mayTarget(FileFacts.CallFact call) {
+        return prefilter.mayTarget(call.nameSymbol(), call.argumentCount());
+    }
+
+    // 负缓存的键在提取事实时已经算好(见FileFacts.CallFact.siteKey)，不是从文件解析出的调用没有键
+    public boolean isKnownUnresolvable(FileFacts.CallFact call) {
+        return call.siteKey() != null && unresolvableCalls.containsKey(call.siteKey());
+    }
+
+    public void markUnresolvable(FileFacts.CallFact call) {
+        if (call.siteKey() != null) {
+            unresolvableCalls.put(call.siteKey(), call.name());
+        }
+    }
+
+    // 文件内容变化后，其中调用点的位置和含义都可能变化
+    public void forgetUnresolvable(File javaFile) {
+        String prefix = javaFile.toPath().toAbsolutePath().normalize() + ":";
+        unresolvableCalls.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    // 新增了这些方法名后，调用它们的调用点可能解析成功
+    public void forgetUnresolvable(Set<String> methodNames) {
+        unresolvableCalls.values().removeIf(methodNames::contains);
+    }
+
+    // 方法调用解析出的声明的签名在符号表中的编号，参数类型经过类型解析缓存；不在符号表中的签名一定不是项目中的方法，返回-1
+    public int signatureSymbolOf(ResolvedMethodDeclaration method) {
+        return GlobalVariables.getSymbolTable().lookup(signatureOf(method, typeResolutionCache));
+    }
+
+    // 生成方法签名，方法声明和方法调用解析出的声明都用这个方法生成，保证两边的键一致；typeResolutionCache为null时不缓存
+    public static String signatureOf(ResolvedMethodDeclaration method, TypeResolutionCache typeResolutionCache) {
+        StringBuilder signature = new StringBuilder();
+        signature.append(method.declaringType().getQualifiedName())
+                .append('#')
+                .append(method.getName())
+                .append('(');
+        for (int i = 0; i < method.getNumberOfParams(); i++) {
+            if (i > 0) {
+                signature.append(',');
+            }
+            ResolvedType type = typeResolutionCache != null
+                    ? typeResolutionCache.getParameterType(method, i)
+                    : method.getParam(i).getType();
+            signature.append(type.erasure().describe());
+        }
+        return signature.append(')').toString();
+    }
+}
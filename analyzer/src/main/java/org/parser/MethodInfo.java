@@ -1,315 +1,411 @@
 package org.parser;
 
-import com.github.javaparser.JavaParser;
-import com.github.javaparser.ast.NodeList;
-import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.StaticJavaParser;
 import com.github.javaparser.ast.body.MethodDeclaration;
-import com.github.javaparser.ast.body.Parameter;
 import com.github.javaparser.ast.expr.MethodCallExpr;
-import com.github.javaparser.ast.expr.NameExpr;
 import com.github.javaparser.ast.type.Type;
-import com.github.javaparser.resolution.declarations.ResolvedMethodDeclaration;
-import com.github.javaparser.ast.expr.Expression;
-import com.github.javaparser.Range;
-import com.github.javaparser.resolution.types.ResolvedType;
-import com.google.common.collect.HashMultiset;
 
 import java.util.*;
 
 public class MethodInfo {
-    private final MethodDeclaration declaration; // 方法声明
-    private final List<MethodInfo> calledMethods; // 被当前方法调用的方法列表
-    private final List<MethodInfo> methodsCallingThis; // 调用当前方法的方法列表
+    private MethodDeclaration declaration; // 方法声明，从分析缓存恢复的方法和链接后释放了AST的方法为null
+    private List<FileFacts.CallFact> calls; // 提取事实时得到的此方法中的所有调用点，没有AST时为空
+    private FileFacts facts; // 调用点所在的事实表，解析调用目标时从中取调用表达式，没有AST时为null
+    private final Set<MethodInfo> calledMethods; // 被当前方法调用的方法，按加入的顺序排列
+    private final Set<MethodInfo> methodsCallingThis; // 调用当前方法的方法，按加入的顺序排列
     private final List<List<ParameterInfo>> invokedParameters;   // 当前方法接受的实际参数
+    private String signature; // 方法签名，第一次使用时解析
+    private int signatureSymbol = -1; // 签名在符号表中的编号，签名解析出来时加入，解析失败时为-1
+    private int id; // 方法在ProjectAnalyzer.methodInfos中的下标，遍历调用关系时使用
+    private boolean signatureResolved;
+    private Exception signatureFailure; // 签名解析失败的原因
+
+    // 以下信息在构造时从AST中取出，写入分析缓存后不需要AST也能使用
+    private final String methodName;
+    private final String className;
+    private final String packageName;
+    private final List<String> parameterNames;
+    private final List<String> parameterTypes;
+    private final int beginLine;
+    private final int endLine;
+    // 参数个数，可变参数方法和从缓存恢复的方法为-1；minimumArity是最少的实参个数
+    private final int fixedArity;
+    private final int minimumArity;
+    private final List<CallSite> callSites; // 此方法中调用项目内方法的调用点
+    private final BitSet unlinkedCallNames; // 没能链接到项目内方法的调用的方法名符号
+    // 方法名、类名和“包名.类名”在符号表(GlobalVariables.getSymbolTable)中的编号，构造时加入，比较和建索引时使用
+    private final int methodNameSymbol;
+    private final int classNameSymbol;
+    private final int qualifiedClassNameSymbol;
+
+    // 构造函数，从文件的事实表(见FileFacts)中的一个方法初始化MethodInfo对象
+    public MethodInfo(FileFacts facts, FileFacts.MethodFact fact, String packageName) {
+        this.declaration = facts.declarationOf(fact);
+        this.calls = fact.calls();
+        this.facts = facts;
+        this.calledMethods = new LinkedHashSet<>();
+        this.methodsCallingThis = new LinkedHashSet<>();
+        this.invokedParameters = new ArrayList<>();
+
+        this.methodName = fact.methodName();
+        this.className = fact.className();
+        this.packageName = packageName;
+        this.parameterNames = new ArrayList<>(fact.parameterNames());
+        this.parameterTypes = new ArrayList<>(fact.parameterTypes());
+        this.beginLine = fact.beginLine();
+        this.endLine = fact.endLine();
+        int parameterCount = parameterNames.size();
+        this.fixedArity = fact.varArgs() ? -1 : parameterCount;
+        this.minimumArity = fact.varArgs() ? parameterCount - 1 : parameterCount;
+        this.callSites = new ArrayList<>();
+        this.unlinkedCallNames = new BitSet();
+        SymbolTable symbols = GlobalVariables.getSymbolTable();
+        this.methodNameSymbol = symbols.intern(methodName);
+        this.classNameSymbol = symbols.intern(className);
+        this.qualifiedClassNameSymbol = symbols.intern(qualifiedClassName(packageName, className));
+    }
 
-    // 构造函数，初始化MethodInfo对象
-    public MethodInfo(MethodDeclaration declaration) {
-        this.declaration = declaration;
-        this.calledMethods = new ArrayList<>();
-        this.methodsCallingThis = new ArrayList<>();
+    // 从分析缓存中的摘要恢复MethodInfo，调用关系要在ProjectAnalyzer中通过replayCallSites重新链接
+    public MethodInfo(MethodSummary summary) {
+        this.declaration = null;
+        this.calls = List.of();
+        this.calledMethods = new LinkedHashSet<>();
+        this.methodsCallingThis = new LinkedHashSet<>();
         this.invokedParameters = new ArrayList<>();
+        this.signature = summary.signature();
+        this.signatureResolved = true;
+
+        this.methodName = summary.methodName();
+        this.className = summary.className();
+        this.packageName = summary.packageName();
+        this.parameterNames = summary.parameterNames();
+        this.parameterTypes = summary.parameterTypes();
+        this.beginLine = summary.beginLine();
+        this.endLine = summary.endLine();
+        // 摘要中没有记录是否为可变参数，按参数个数不固定处理
+        this.fixedArity = -1;
+        this.minimumArity = 0;
+        this.callSites = new ArrayList<>(summary.callSites());
+        this.unlinkedCallNames = new BitSet();
+        SymbolTable symbols = GlobalVariables.getSymbolTable();
+        for (String callName : summary.unlinkedCallNames()) {
+            unlinkedCallNames.set(symbols.intern(callName));
+        }
+        this.methodNameSymbol = symbols.intern(methodName);
+        this.classNameSymbol = symbols.intern(className);
+        this.qualifiedClassNameSymbol = symbols.intern(qualifiedClassName(packageName, className));
+        if (signature != null) {
+            this.signatureSymbol = symbols.intern(signature);
+        }
+    }
+
+    // 包名.类名，默认包中的类只有类名
+    private static String qualifiedClassName(String packageName, String className) {
+        return packageName.isEmpty() ? className : packageName + "." + className;
+    }
+
+    // 生成写入分析缓存的摘要
+    public MethodSummary toSummary() {
+        return new MethodSummary(methodName, className, packageName, getSignature(),
+                List.copyOf(parameterNames), List.copyOf(parameterTypes), beginLine, endLine,
+                List.copyOf(callSites), unlinkedCallNames.stream().mapToObj(GlobalVariables.getSymbolTable()::name).toList());
+    }
+
+    // 是否带有AST，从分析缓存恢复的方法和已经释放了AST的方法没有
+    public boolean hasDeclaration() {
+        return declaration != null;
+    }
+
+    /*
+    调用关系链接完成后释放AST，之后只保留摘要(签名、行号范围、调用点)，与从分析缓存恢复的方法相同。
+    签名要在释放前解析；之后需要源代码细节(例如数据流图)时由ProjectAnalyzer通过ParsedFileCache重新解析文件。
+     */
+    public void releaseDeclaration() {
+        getSignature();
+        declaration = null;
+        calls = List.of();
+        facts = null;
     }
 
-    // 添加一个被当前方法调用的方法
+    // 调用点对应的调用表达式，只在解析调用目标时使用
+    public MethodCallExpr callExpression(FileFacts.CallFact call) {
+        return facts.expressionOf(call);
+    }
+
+    // 添加一个被当前方法调用的方法，重复添加会被忽略
     public void addCalledMethod(MethodInfo method) {
-        if (!calledMethods.contains(method)) {
-            this.calledMethods.add(method);
-        }
+        this.calledMethods.add(method);
     }
 
-    // 添加一个调用当前方法的方法
+    // 添加一个调用当前方法的方法，重复添加会被忽略
     public void addMethodCallingThis(MethodInfo method) {
-        if (!methodsCallingThis.contains(method)) {
-            this.methodsCallingThis.add(method);
-        }
+        this.methodsCallingThis.add(method);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
     }
 
     // 获取当前方法的名称
     public String getMethodName() {
-        return declaration.getNameAsString();
+        return methodName;
     }
 
     public String getClassName() {
-        return declaration.findAncestor(ClassOrInterfaceDeclaration.class).get().getNameAsString();
+        return className;
+    }
+
+    public String getPackageName() {
+        return packageName;
+    }
+
+    public int getMethodNameSymbol() {
+        return methodNameSymbol;
+    }
+
+    public int getClassNameSymbol() {
+        return classNameSymbol;
+    }
+
+    // “包名.类名”的符号编号
+    public int getQualifiedClassNameSymbol() {
+        return qualifiedClassNameSymbol;
+    }
+
+    public int getBeginLine() {
+        return beginLine;
+    }
+
+    public int getEndLine() {
+        return endLine;
+    }
+
+    public List<String> getParameterNames() {
+        return parameterNames;
+    }
+
+    // 参数类型在源代码中的写法
+    public List<String> getParameterTypes() {
+        return parameterTypes;
+    }
+
+    public List<CallSite> getCallSites() {
+        return callSites;
     }
 
     public Map<String,Type> getParamList(){
-        Map<String,Type> paramList=new HashMap<>();
-        for (Parameter parameter : declaration.getParameters()) {
-            Type paramType=parameter.getType();
-            String paramName= parameter.getNameAsString();
+        // 按参数的声明顺序排列
+        Map<String,Type> paramList=new LinkedHashMap<>();
+        for (int i = 0; i < parameterNames.size(); i++) {
+            // 有AST时直接取参数的类型节点，从缓存恢复的方法则从类型字符串解析
+            Type paramType = declaration != null
+                    ? declaration.getParameter(i).getType()
+                    : StaticJavaParser.parseType(parameterTypes.get(i));
+            String paramName = parameterNames.get(i);
             paramList.put(paramName,paramType);
         }
         return paramList;
     }
 
     /*
-    JieChu said: 传入的参数是：有哪些方法可能被本MethodInfo调用
-    该analyze执行这样的功能：找到有哪些方法被该方法调用，并在被调用的方法里添加“我被该方法调用”的信息，该信息存储在被调用方法的methodsCallingThis字段中
+    此方法的调用点是否可能受到其他文件变化的影响：调用了变化的方法，或者有同名的调用(不论之前是否链接上)。
+    两个参数分别是变化的签名和方法名在符号表中的编号
      */
-    // 分析方法，找出此方法调用了哪些方法，并更新calledMethods和methodsCallingThis列表
-    public void analyze(List<MethodInfo> allMethods) {
-        // 从当前方法声明中找到所有的方法调用表达式
-        List<MethodCallExpr> methodCalls = declaration.findAll(MethodCallExpr.class);
+    public boolean dependsOn(BitSet changedSignatures, BitSet changedMethodNames) {
+        for (CallSite callSite : callSites) {
+            // 已经链接的调用也可能因为新增的同名重写、重载方法而改变目标
+            if (changedSignatures.get(callSite.targetSymbol()) || changedMethodNames.get(callSite.targetNameSymbol())) {
+                return true;
+            }
+        }
+        return unlinkedCallNames.intersects(changedMethodNames);
+    }
 
-        // 遍历所有找到的方法调用表达式
-        for (MethodCallExpr methodCall : methodCalls) {
+    // 获取方法签名(见MethodIndex.signatureOf)，只解析一次，解析失败时返回null
+    public String getSignature() {
+        if (signature == null && !signatureResolved) {
+            signatureResolved = true;
             try {
-                ResolvedMethodDeclaration resolvedMethod = methodCall.resolve();
-                String qualifiedName = resolvedMethod.getQualifiedSignature();
-                String[] methodCallInfo = qualifiedName.split("\\.");
-                String methodClassName = methodCallInfo[1];
-                String calledMethodName = methodCall.getNameAsString();
-
-                // 遍历传入的所有方法信息
-                for (MethodInfo methodInfo : allMethods) {
-                    if (methodInfo.getMethodName().equals(calledMethodName) &&//方法名称相同
-                            methodInfo.getClassName().equals(methodClassName) &&//方法所属类相同
-                            checkMethodDeclareExprParamEqual(methodInfo.declaration,methodCall)){//方法参数列表相同
-                        this.addCalledMethod(methodInfo);
-                        methodInfo.addMethodCallingThis(this);
-                    }
-                }
-
+                signature = MethodIndex.signatureOf(declaration.resolve(), null);
+                signatureSymbol = GlobalVariables.getSymbolTable().intern(signature);
             } catch (Exception e) {
-                System.out.println(e);
-                System.out.println("无法解析方法调用: " + methodCall);
+                // 不在这里打印，由ProjectAnalyzer计入AnalysisMetrics
+                signatureFailure = e;
             }
         }
+        return signature;
     }
 
-    private Boolean checkMethodDeclareExprParamEqual(MethodDeclaration methodDeclaration, MethodCallExpr methodCallExpr)
-    {
-        // 获取方法声明的参数列表
-        NodeList<Parameter> methodParameters = methodDeclaration.getParameters();
+    // 签名在符号表中的编号，签名无法解析时为-1
+    public int getSignatureSymbol() {
+        getSignature();
+        return signatureSymbol;
+    }
 
-        // 获取方法调用的参数表达式列表
-        NodeList<Expression> callArguments = methodCallExpr.getArguments();
+    // 签名解析失败的原因，没有失败时为null
+    public Exception getSignatureFailure() {
+        return signatureFailure;
+    }
 
-        // 比较参数数量是否相等
-        if (methodParameters.size() != callArguments.size()) {
-            return false;
-        }
-        else {
-            for (int i = 0; i < methodParameters.size(); i++) {
-                Parameter declParam = methodParameters.get(i);
-                Expression callArg = callArguments.get(i);
-
-                try {
-                    // 获取声明参数的解析类型
-                    ResolvedType declParamType = declParam.getType().resolve();
-
-                    // 获取调用参数的解析类型
-                    ResolvedType callArgType = callArg.calculateResolvedType();
-
-                    // 比较类型是否相等
-                    if (!declParamType.equals(callArgType)) {
-                        return false;
-                    }
-                } catch (Exception e) {
-                    System.out.println("Warning! 类型解析出错: " + e.getMessage());
-                }
-            }
-        }
-        return true;
+    /*
+    JieChu said: 传入的参数是：有哪些方法可能被本MethodInfo调用
+    该analyze执行这样的功能：找到有哪些方法被该方法调用，并在被调用的方法里添加“我被该方法调用”的信息，该信息存储在被调用方法的methodsCallingThis字段中
+     */
+    // 分析方法，找出此方法调用了哪些方法，并更新calledMethods和methodsCallingThis列表
+    // 被调用的方法通过签名索引直接查找，不再逐个比较所有方法的名称、类名和参数
+    // 每个调用点只解析一次，解析出目标的同时记录实参(被调用方法的invokedParameters)和调用点(本方法的callSites)
+    // 解析成功、失败的次数和耗时记录在metrics中，失败时不打印异常
+    // 方法名和参数个数与项目中所有方法都不符的调用、之前已经解析失败过的调用不再交给符号解析器
+    public void analyze(MethodIndex methodIndex, AnalysisMetrics metrics) {
+        linkResolvedCalls(resolveCalls(methodIndex, metrics), metrics);
     }
 
+    // 解析出的一个调用点及其目标
+    public record ResolvedCall(FileFacts.CallFact call, MethodInfo target) {
+    }
 
     /*
-    JieChu said: “获取此方法调用的所有方法”在analyze方法中就已经完成了，
-    这个getInvokes的实际作用是找到这些被调用的方法的深度和其所属的类。
-    被调用的方法所属的包在getInvokes不断的递归调用中是不变的。
+    analyze的前一半：解析所有调用点，返回调用了项目内方法的调用点，没能链接的调用记入unlinkedCallNames。
+    只修改这个方法自己的状态，不修改被调用的方法，多模块分析时各模块的线程同时解析，之后再按固定的顺序调用linkResolvedCalls。
      */
-    public String getInvokes(int depth, int currentDepth, String packageName) {
-        List<String> result = new ArrayList<>(); // 创建一个列表来存储结果字符串
-
-        // 遍历此方法调用的所有方法
-        for (MethodInfo method : calledMethods) {
-            // 获取被调用方法所在的类名
-            String className = method.declaration.findAncestor(ClassOrInterfaceDeclaration.class).get().getNameAsString();
-
-            // 创建一个新条目，包含方法名、包名、类名和当前深度
-            String newEntry = "[" + method.getMethodName() + ", " + packageName + "." + className + " (depth:" + currentDepth + ")]";
-
-            boolean isAdded = false; // 标志变量，表示新条目是否已添加到结果列表中
-
-            // 遍历结果列表，检查是否已经存在相同的条目
-            for (int i = 0; i < result.size(); i++) {
-                String existingEntry = result.get(i); // 获取已存在的条目
-
-                // 如果找到相同的条目（方法名和类名相同）
-                if (existingEntry.contains(method.getMethodName() + ", " + packageName + "." + className)) {
-                    // 获取已存在条目的深度
-                    int existingDepth = Integer.parseInt(existingEntry.split("depth:")[1].split("\\)")[0]);
-
-                    // 如果新条目的深度更大，则用新条目替换旧条目
-                    if (currentDepth > existingDepth) {
-                        result.set(i, newEntry);
-                    }
-                    isAdded = true; // 设置标志变量为true，表示新条目已添加
-                    break;
-                }
+    public List<ResolvedCall> resolveCalls(MethodIndex methodIndex, AnalysisMetrics metrics) {
+        List<ResolvedCall> resolvedCalls = new ArrayList<>();
+        // 遍历提取事实时得到的所有调用点
+        for (FileFacts.CallFact call : calls) {
+            if (!methodIndex.mayTarget(call)) {
+                unlinkedCallNames.set(call.nameSymbol());
+                metrics.recordCallFiltered();
+                continue;
             }
-
-            // 如果新条目没有被添加，则将其添加到结果列表中
-            if (!isAdded) {
-                result.add(newEntry);
+            if (methodIndex.isKnownUnresolvable(call)) {
+                unlinkedCallNames.set(call.nameSymbol());
+                metrics.recordCallKnownUnresolvable();
+                continue;
             }
-
-            // 如果当前深度小于指定的最大深度，则递归调用此方法
-            if (depth > currentDepth) {
-                // 获取递归调用的结果，并按行分割
-                String invokesEntries = method.getInvokes(depth, currentDepth + 1, packageName);
-                if (!invokesEntries.equals("")) {
-                    String[] invokesArray = invokesEntries.split("\n");
-
-                    // 将递归调用的结果添加到结果列表中，确保不添加重复的条目
-                    for (String invoke : invokesArray) {
-                        if (!result.contains(invoke)) {
-                            result.add(invoke);
-                        }
-                    }
-                }
+            long started = metrics.start();
+            // 解析出的签名只查一次符号表，之后都用编号
+            int signatureSymbol;
+            try {
+                signatureSymbol = methodIndex.signatureSymbolOf(callExpression(call).resolve());
+            } catch (Exception e) {
+                metrics.record(AnalysisMetrics.Phase.TYPE_RESOLUTION, started);
+                metrics.recordCallFailed(e, getClassName() + "." + getMethodName() + ": " + callExpression(call));
+                methodIndex.markUnresolvable(call);
+                unlinkedCallNames.set(call.nameSymbol());
+                continue;
+            }
+            metrics.record(AnalysisMetrics.Phase.TYPE_RESOLUTION, started);
+
+            MethodInfo methodInfo = methodIndex.get(signatureSymbol);
+            // 索引中没有的方法不属于被解析的项目，直接跳过
+            if (methodInfo != null) {
+                resolvedCalls.add(new ResolvedCall(call, methodInfo));
+                metrics.recordCallLinked();
+            } else {
+                unlinkedCallNames.set(call.nameSymbol());
+                metrics.recordCallExternal();
             }
         }
-
-        // 将结果列表中的所有条目连接成一个字符串，并用换行符分隔
-        return String.join("\n", result);
+        return resolvedCalls;
     }
 
+    // analyze的后一半：按调用点的顺序链接调用关系和实参
+    public void linkResolvedCalls(List<ResolvedCall> resolvedCalls, AnalysisMetrics metrics) {
+        for (ResolvedCall resolvedCall : resolvedCalls) {
+            linkCall(resolvedCall.target(), resolvedCall.call(), metrics);
+        }
+        metrics.recordMethodAnalyzed();
+    }
 
-    // 获取调用此方法的所有方法，并以特定格式输出
-    public String getInvokedBy(int depth, int currentDepth, String packageName) {
-        List<String> result = new ArrayList<>(); // 创建一个列表来存储结果字符串
+    // 从分析缓存恢复的方法没有AST，按缓存中记录的调用点重新链接调用关系和实参
+    public void replayCallSites(MethodIndex methodIndex) {
+        for (CallSite callSite : callSites) {
+            MethodInfo methodInfo = methodIndex.get(callSite.targetSymbol());
+            if (methodInfo != null) {
+                linkCallSite(methodInfo, callSite);
+            }
+        }
+    }
 
-        // 遍历所有调用此方法的方法
-        for (MethodInfo method : methodsCallingThis) {
-            // 获取调用此方法的方法所在的类名
-            String className = method.declaration.findAncestor(ClassOrInterfaceDeclaration.class).get().getNameAsString();
+    // 只重新链接指向targets中方法的调用点，监视模式下被调用的文件重新解析后使用
+    public void replayCallSitesInto(MethodIndex methodIndex, Set<MethodInfo> targets) {
+        for (CallSite callSite : callSites) {
+            MethodInfo methodInfo = methodIndex.get(callSite.targetSymbol());
+            if (methodInfo != null && targets.contains(methodInfo)) {
+                linkCallSite(methodInfo, callSite);
+            }
+        }
+    }
 
-            // 创建一个新条目，包含方法名、包名、类名和当前深度
-            String newEntry = "[" + method.getMethodName() + ", " + packageName + "." + className + " (depth:" + currentDepth + ")]";
+    private void linkCallSite(MethodInfo methodInfo, CallSite callSite) {
+        this.addCalledMethod(methodInfo);
+        methodInfo.addMethodCallingThis(this);
+        methodInfo.invokedParameters.add(callSite.arguments());
+    }
 
-            boolean isAdded = false; // 标志变量，表示新条目是否已添加到结果列表中
+    /*
+    撤销此方法参与的所有调用关系，监视模式下方法所在的文件变化时使用。
+    此方法在被调用方法中留下的实参按对象身份删除；调用此方法的其他方法收集到affectedCallers中，之后按签名重新链接。
+     */
+    public void retract(MethodIndex methodIndex, Set<MethodInfo> affectedCallers) {
+        for (CallSite callSite : callSites) {
+            MethodInfo target = methodIndex.get(callSite.targetSymbol());
+            if (target != null) {
+                target.invokedParameters.removeIf(arguments -> arguments == callSite.arguments());
+            }
+        }
+        for (MethodInfo callee : calledMethods) {
+            callee.methodsCallingThis.remove(this);
+        }
+        for (MethodInfo caller : methodsCallingThis) {
+            caller.calledMethods.remove(this);
+            affectedCallers.add(caller);
+        }
+    }
 
-            // 遍历结果列表，检查是否已经存在相同的条目
-            for (int i = 0; i < result.size(); i++) {
-                String existingEntry = result.get(i); // 获取已存在的条目
 
-                // 如果找到相同的条目（方法名和类名相同）
-                if (existingEntry.contains(method.getMethodName() + ", " + packageName + "." + className)) {
-                    // 获取已存在条目的深度
-                    int existingDepth = Integer.parseInt(existingEntry.split("depth:")[1].split("\\)")[0]);
+    // 此方法在整个项目中每一个被调用处获得的实参表达式的“字符串形式”+所处的类+所处的行，每个调用点一个列表
+    // 在调用者的analyze(或从缓存恢复的调用者的replayCallSites)中随调用关系一起填入
+    public List<List<ParameterInfo>> getInvokedParameters() {
+        return invokedParameters;
+    }
 
-                    // 如果新条目的深度更大，则用新条目替换旧条目
-                    if (currentDepth > existingDepth) {
-                        result.set(i, newEntry);
-                    }
-                    isAdded = true; // 设置标志变量为true，表示新条目已添加
-                    break;
-                }
-            }
+    // 把已经解析出目标的调用点同时链接为调用关系和实参
+    public void linkCall(MethodInfo target, FileFacts.CallFact call, AnalysisMetrics metrics) {
+        this.addCalledMethod(target);
+        target.addMethodCallingThis(this);
+        long started = metrics.start();
+        List<ParameterInfo> parameterInfoList = call.argumentInfos();
+        metrics.record(AnalysisMetrics.Phase.PARAMETER_COLLECTION, started);
+        target.invokedParameters.add(parameterInfoList);
+        callSites.add(new CallSite(target.getSignature(), target.getMethodName(), parameterInfoList, call.endLine(), call.endColumn(),
+                target.getSignatureSymbol(), target.getMethodNameSymbol()));
+    }
 
-            // 如果新条目没有被添加，则将其添加到结果列表中
-            if (!isAdded) {
-                result.add(newEntry);
-            }
+    // 方法调用表达式传入argumentCount个实参时，是否可能调用到此方法(参数个数相同，或者是可变参数方法)
+    public boolean acceptsArgumentCount(int argumentCount) {
+        return fixedArity < 0 ? argumentCount >= minimumArity : argumentCount == fixedArity;
+    }
 
-            // 如果当前深度小于指定的最大深度，则递归调用此方法
-            if (depth > currentDepth) {
-                // 获取递归调用的结果，并按行分割
-                String invokedByEntries = method.getInvokedBy(depth, currentDepth + 1, packageName);
-                if (!invokedByEntries.equals("")) {
-                    String[] invokedByArray = invokedByEntries.split("\n");
-
-                    // 将递归调用的结果添加到结果列表中，确保不添加重复的条目
-                    for (String invokedBy : invokedByArray) {
-                        if (!result.contains(invokedBy)) {
-                            result.add(invokedBy);
-                        }
-                    }
-                }
-            }
-        }
+    // 参数个数；可变参数方法和从分析缓存恢复的方法参数个数不固定，返回-1
+    public int getFixedArity() {
+        return fixedArity;
+    }
 
-        // 将结果列表中的所有条目连接成一个字符串，并用换行符分隔
-        return String.join("\n", result);
+    // 此方法中的所有调用点，按在源代码中的先后排列，没有AST(包括已经释放)时为空
+    public List<FileFacts.CallFact> getCalls() {
+        return calls;
     }
 
+    public Set<MethodInfo> getCalledMethods() {
+        return calledMethods;
+    }
 
-    // 找到某个方法在整个项目中任何被调用处获得的实参表达式的“字符串形式”+所处的类+所处的行
-    //但是这个getInvokedParameters方法要达到目的，就必须让被解析项目中的所有方法对应的MethodInfo对象的methodsCallingThis字段都得到了完全初始化。
-    //完全初始化被解析项目中的methodsCallingThis要需要以下语句：
-    //for (MethodInfo methodInfo : methodInfos) {
-    //    methodInfo.analyze(methodInfos);
-    //}
-    //其中methodInfos是整个被解析项目中所有的方法
-    public void getInvokedParameters() {
-        // 遍历所有调用此方法的方法
-        List<MethodCallExpr> methodCalls=new ArrayList<>();
-        for (MethodInfo method : methodsCallingThis) {
-            // 从每个方法中找到所有的方法调用表达式
-            methodCalls.addAll(method.declaration.findAll(MethodCallExpr.class));
-        }
-        // 遍历找到的方法调用表达式
-        for (MethodCallExpr methodCall : methodCalls) {
-            try {
-                // 检查这个方法调用表达式是否是对当前方法的调用
-                ResolvedMethodDeclaration resolvedMethod = methodCall.resolve();
-                if (resolvedMethod.getQualifiedSignature().equals(this.declaration.resolve().getQualifiedSignature())) {
-                    List<ParameterInfo> parameterInfoList = new ArrayList<>();
-
-                    // 获取并存储实际传递的参数
-                    List<Expression> arguments = methodCall.getArguments();
-
-                    // 获取实参表达式时位于哪一个类中，即当前方法是在哪一个类中被调用的
-                    //由于arguments中的实参表达式肯定是位于同一个类中，所以只需要用arguments.get(0)获取一次className就行了
-                    String className = "";
-                    Optional<ClassOrInterfaceDeclaration> classOrInterface = arguments.get(0).findAncestor(ClassOrInterfaceDeclaration.class);
-                    if (classOrInterface.isPresent()) {
-                        // 获取类名
-                        className = classOrInterface.get().getNameAsString();
-                    }
-
-                    //获取每一个实参表达式的字符串形式，以及该实参表达式位于哪一行
-                    for (Expression argument : arguments) {
-                        // 获取变量名
-                        String variableName = argument.toString();
-                        // 获取变量的行数
-                        Range expressionRange = argument.getRange().orElse(null);
-                        int variableStartLine=(expressionRange != null)?expressionRange.begin.line:0;
-
-                        ParameterInfo paraInfo = new ParameterInfo(variableName, className, variableStartLine);
-                        // 把 parameterInfo 传入参数列表
-                        parameterInfoList.add(paraInfo);
-                    }
-
-                    this.invokedParameters.add(parameterInfoList);
-                }
-            } catch (Exception e) {
-                System.out.println(e);
-                System.out.println("无法解析方法调用: " + methodCall);
-            }
-        }
+    public Set<MethodInfo> getMethodsCallingThis() {
+        return methodsCallingThis;
     }
 }
@@ -14,7 +14,14 @@ public class MethodSourceAnalyzer {
 
         // 处理用户的输入
         ProjectAnalyzer projectAnalyzer = new ProjectAnalyzer("main");
-        projectAnalyzer.findAllUsedExpr();
+        CallGraph graph = projectAnalyzer.findAllUsedExpr();
+        // 输出数据流图中的每一条边：值从哪里流向哪里
+        for (CallNode callNode : graph.getNodes()) {
+            for (CallNode nextNode : callNode.getNextNodes()) {
+                System.out.println(callNode.getNodeInfo() + " -> " + nextNode.getNodeInfo());
+            }
+        }
+        System.out.println(graph);
     }
 }
 
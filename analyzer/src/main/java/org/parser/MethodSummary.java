@@ -0,0 +1,21 @@
+package org.parser;
+
+import java.io.Serializable;
+import java.util.List;
+
+/*
+一个方法脱离AST之后仍然需要的全部信息，写入分析缓存，下次启动时不用重新解析源文件就能恢复MethodInfo。
+callSites是此方法调用项目内方法的调用点；unlinkedCallNames是没能链接到项目内方法的调用的方法名，
+别的文件新增了同名方法时，据此判断这个方法所在的文件需要重新分析。
+ */
+public record MethodSummary(String methodName,
+                            String className,
+                            String packageName,
+                            String signature,
+                            List<String> parameterNames,
+                            List<String> parameterTypes,
+                            int beginLine,
+                            int endLine,
+                            List<CallSite> callSites,
+                            List<String> unlinkedCallNames) implements Serializable {
+}
@@ -0,0 +1,183 @@
+package org.parser;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/*
+查找多模块项目中的模块，并按依赖关系排序。
+fromPom从根pom.xml开始递归读取<modules>，每个有源代码目录的模块(<build><sourceDirectory>，默认src/main/java)成为一个SourceModule，
+依赖只保留同一个项目中的其他模块，第三方依赖没有源代码，不参与分析。只解析pom本身，不读取父pom之外的继承和profile。
+fromRoots把直接给出的几个源代码根目录作为同一个模块，不知道它们之间的依赖，每个根目录都能看到其他所有根目录中的类型。
+ */
+public class ModuleDiscovery {
+    private ModuleDiscovery() {
+    }
+
+    // 从根pom.xml查找所有模块，结果按依赖顺序排列(被依赖的模块在前)
+    public static List<SourceModule> fromPom(Path pomFile) throws IOException {
+        DocumentBuilder builder;
+        try {
+            builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+        } catch (ParserConfigurationException e) {
+            throw new IOException(e);
+        }
+        Map<String, PomModule> modulesByCoordinates = new LinkedHashMap<>();
+        readPom(builder, pomFile.toAbsolutePath().normalize(), null, modulesByCoordinates, new HashSet<>());
+
+        List<SourceModule> modules = new ArrayList<>();
+        for (PomModule module : modulesByCoordinates.values()) {
+            if (!Files.isDirectory(module.sourceRoot())) {
+                continue;
+            }
+            List<String> dependencies = new ArrayList<>();
+            for (String coordinates : module.dependencies()) {
+                PomModule dependency = modulesByCoordinates.get(coordinates);
+                if (dependency != null && Files.isDirectory(dependency.sourceRoot())) {
+                    dependencies.add(dependency.artifactId());
+                }
+            }
+            modules.add(new SourceModule(module.artifactId(), List.of(module.sourceRoot()), dependencies));
+        }
+        return sortByDependencies(modules);
+    }
+
+    // 直接给出的源代码根目录，合成一个模块
+    public static List<SourceModule> fromRoots(List<Path> sourceRoots) {
+        return List.of(new SourceModule("roots", List.copyOf(sourceRoots), List.of()));
+    }
+
+    // pom中读出的一个模块，dependencies为“groupId:artifactId”
+    private record PomModule(String artifactId, Path sourceRoot, List<String> dependencies) {
+    }
+
+    private static void readPom(DocumentBuilder builder, Path pomFile, String parentGroupId,
+                                Map<String, PomModule> modules, Set<Path> visited) throws IOException {
+        if (!visited.add(pomFile)) {
+            return;
+        }
+        Document document;
+        try {
+            document = builder.parse(pomFile.toFile());
+        } catch (SAXException e) {
+            throw new IOException("无法解析 " + pomFile + ": " + e.getMessage(), e);
+        }
+        Element project = document.getDocumentElement();
+        Path moduleDirectory = pomFile.getParent();
+
+        String groupId = childText(project, "groupId");
+        if (groupId == null) {
+            Element parent = child(project, "parent");
+            groupId = parent != null ? childText(parent, "groupId") : parentGroupId;
+        }
+        String artifactId = childText(project, "artifactId");
+
+        List<String> dependencies = new ArrayList<>();
+        Element dependencyList = child(project, "dependencies");
+        if (dependencyList != null) {
+            for (Element dependency : children(dependencyList, "dependency")) {
+                String dependencyGroupId = childText(dependency, "groupId");
+                if (dependencyGroupId != null && (dependencyGroupId.equals("${project.groupId}") || dependencyGroupId.equals("${groupId}"))) {
+                    dependencyGroupId = groupId;
+                }
+                dependencies.add(dependencyGroupId + ":" + childText(dependency, "artifactId"));
+            }
+        }
+
+        Path sourceRoot = moduleDirectory.resolve("src/main/java");
+        Element build = child(project, "build");
+        if (build != null && childText(build, "sourceDirectory") != null) {
+            sourceRoot = moduleDirectory.resolve(childText(build, "sourceDirectory").replace("${project.basedir}/", "").replace("${basedir}/", ""));
+        }
+        modules.putIfAbsent(groupId + ":" + artifactId, new PomModule(artifactId, sourceRoot.normalize(), dependencies));
+
+        Element moduleList = child(project, "modules");
+        if (moduleList != null) {
+            for (Element module : children(moduleList, "module")) {
+                Path child = moduleDirectory.resolve(module.getTextContent().trim()).normalize();
+                readPom(builder, Files.isDirectory(child) ? child.resolve("pom.xml") : child, groupId, modules, visited);
+            }
+        }
+    }
+
+    private static List<Element> children(Element parent, String name) {
+        List<Element> result = new ArrayList<>();
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node instanceof Element element && element.getTagName().equals(name)) {
+                result.add(element);
+            }
+        }
+        return result;
+    }
+
+    private static Element child(Element parent, String name) {
+        List<Element> result = children(parent, name);
+        return result.isEmpty() ? null : result.get(0);
+    }
+
+    private static String childText(Element parent, String name) {
+        Element element = child(parent, name);
+        return element == null ? null : element.getTextContent().trim();
+    }
+
+    // 拓扑排序，被依赖的模块排在前面，同一层按原来的顺序；有循环依赖时抛出IllegalArgumentException
+    public static List<SourceModule> sortByDependencies(List<SourceModule> modules) {
+        Map<String, SourceModule> byName = new LinkedHashMap<>();
+        for (SourceModule module : modules) {
+            byName.put(module.name(), module);
+        }
+        List<SourceModule> sorted = new ArrayList<>();
+        Set<String> done = new HashSet<>();
+        Set<String> visiting = new HashSet<>();
+        for (SourceModule module : modules) {
+            visit(module, byName, done, visiting, sorted);
+        }
+        return sorted;
+    }
+
+    private static void visit(SourceModule module, Map<String, SourceModule> byName,
+                              Set<String> done, Set<String> visiting, List<SourceModule> sorted) {
+        if (done.contains(module.name())) {
+            return;
+        }
+        if (!visiting.add(module.name())) {
+            throw new IllegalArgumentException("模块之间有循环依赖: " + module.name());
+        }
+        for (String dependency : module.dependencies()) {
+            SourceModule dependencyModule = byName.get(dependency);
+            if (dependencyModule != null) {
+                visit(dependencyModule, byName, done, visiting, sorted);
+            }
+        }
+        visiting.remove(module.name());
+        done.add(module.name());
+        sorted.add(module);
+    }
+
+    // 模块直接和间接依赖的所有模块，与Maven编译时的类路径一致
+    public static List<SourceModule> transitiveDependencies(SourceModule module, Map<String, SourceModule> byName) {
+        Set<String> seen = new LinkedHashSet<>();
+        Deque<String> pending = new ArrayDeque<>(module.dependencies());
+        while (!pending.isEmpty()) {
+            String name = pending.poll();
+            SourceModule dependency = byName.get(name);
+            if (dependency != null && !name.equals(module.name()) && seen.add(name)) {
+                pending.addAll(dependency.dependencies());
+            }
+        }
+        List<SourceModule> result = new ArrayList<>();
+        for (String name : seen) {
+            result.add(byName.get(name));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,93 @@
+package org.parser;
+
+import java.util.*;
+
+/*
+重载方法索引：按(类名符号, 方法名符号)保存同名方法(重载)的列表，顺序与ProjectAnalyzer.methodInfos相同，查询时不需要遍历所有方法。
+选择重载时用参数类型列表作为键，例如“(java.lang.String,int)”，来自擦除泛型后的方法签名，与MethodIndex的签名一致；
+也可以只写简单类名“(String,int)”，简单类名相同的重载有多个时要写全限定名。签名无法解析的方法按源代码中的类型名生成键。
+键在某个方法第一次按参数类型查找时才生成，懒加载模式下不会为了建索引解析所有方法声明。
+类名和交互查询一样不含包名，包中不同子包的同名类的方法在同一个列表中。
+ */
+public class OverloadIndex {
+    // 一组重载按参数类型列表的索引：全限定类名的写法，以及简单类名的写法(有歧义时值为null)
+    private record ParameterKeys(Map<String, MethodInfo> qualified, Map<String, MethodInfo> simple) {
+    }
+
+    private final LongObjectMap<List<MethodInfo>> overloadsByName = new LongObjectMap<>();
+    private final LongObjectMap<ParameterKeys> parameterKeys = new LongObjectMap<>();
+
+    public OverloadIndex(List<MethodInfo> methods) {
+        for (MethodInfo method : methods) {
+            overloadsByName.computeIfAbsent(SymbolTable.pair(method.getClassNameSymbol(), method.getMethodNameSymbol()),
+                    key -> new ArrayList<>()).add(method);
+        }
+    }
+
+    // 用户输入的类名和方法名对应的键，任何一个不在符号表中时返回-1，此时一定没有这个方法
+    private static long key(String className, String methodName) {
+        SymbolTable symbols = GlobalVariables.getSymbolTable();
+        int classNameSymbol = symbols.lookup(className);
+        int methodNameSymbol = symbols.lookup(methodName);
+        return classNameSymbol < 0 || methodNameSymbol < 0 ? -1 : SymbolTable.pair(classNameSymbol, methodNameSymbol);
+    }
+
+    // 类中名为methodName的所有方法，没有时返回空列表
+    public List<MethodInfo> getOverloads(String className, String methodName) {
+        long key = key(className, methodName);
+        return key < 0 ? List.of() : overloadsByName.getOrDefault(key, List.of());
+    }
+
+    // 按参数类型列表选择重载，parameterTypes可以带括号，找不到或有歧义时返回null
+    public synchronized MethodInfo find(String className, String methodName, String parameterTypes) {
+        long key = key(className, methodName);
+        List<MethodInfo> overloads = key < 0 ? null : overloadsByName.get(key);
+        if (overloads == null) {
+            return null;
+        }
+        ParameterKeys keys = parameterKeys.computeIfAbsent(key, k -> indexParameters(overloads));
+        String normalized = normalize(parameterTypes);
+        MethodInfo method = keys.qualified().get(normalized);
+        return method != null ? method : keys.simple().get(simplify(normalized));
+    }
+
+    private static ParameterKeys indexParameters(List<MethodInfo> overloads) {
+        Map<String, MethodInfo> qualified = new HashMap<>();
+        Map<String, MethodInfo> simple = new HashMap<>();
+        for (MethodInfo method : overloads) {
+            String parameters = parameterKey(method);
+            qualified.putIfAbsent(parameters, method);
+            String simplified = simplify(parameters);
+            simple.put(simplified, simple.containsKey(simplified) ? null : method);
+        }
+        return new ParameterKeys(qualified, simple);
+    }
+
+    // 方法的参数类型列表，例如“(java.lang.String,int)”
+    public static String parameterKey(MethodInfo method) {
+        String signature = method.getSignature();
+        if (signature != null) {
+            return signature.substring(signature.indexOf('('));
+        }
+        return normalize(String.join(",", method.getParameterTypes()));
+    }
+
+    // 去掉空白和泛型参数，可变参数写成数组，补上括号
+    private static String normalize(String parameterTypes) {
+        String normalized = parameterTypes.replaceAll("\\s", "");
+        if (!normalized.startsWith("(")) {
+            normalized = "(" + normalized + ")";
+        }
+        String previous;
+        do {
+            previous = normalized;
+            normalized = normalized.replaceAll("<[^<>]*>", "");
+        } while (!normalized.equals(previous));
+        return normalized.replace("...", "[]");
+    }
+
+    // 每个参数类型只保留最后一段类名
+    private static String simplify(String parameterTypes) {
+        return parameterTypes.replaceAll("[\\w$]+\\.", "");
+    }
+}
@@ -1,7 +1,10 @@
 package org.parser;
 
+import java.io.Serializable;
+
 // 后续肯定要修改的
-public class ParameterInfo {
+public class ParameterInfo implements Serializable {
+    private static final long serialVersionUID = 1L;
 
     private String parameterName;
     private String parameterClass;
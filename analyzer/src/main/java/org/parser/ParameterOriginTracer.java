@@ -0,0 +1,180 @@
+package org.parser;
+
+import java.util.*;
+
+/*
+参数来源追踪：从一个形参(或返回值)出发，沿数据流图(见CallGraph)逆着值的流向，经过调用者的实参、赋值和被调用方法的返回值，
+一直追到字面量、new等表达式、没有赋值的成员变量和入口(没有调用者的方法的形参)。
+追踪分两层，都用工作表而不是递归：
+1. 摘要：从一个边界节点(形参或返回值)出发，在不穿过其他边界节点的范围内逆向遍历，得到直接的来源和遇到的其他边界节点。
+   摘要与深度无关，按边界节点记忆，每个(方法, 形参下标)和每个方法的返回值只计算一次，不同的查询共享同一个调用者时不再重复遍历。
+2. 追踪：从起点的摘要开始，按层展开摘要中遇到的边界节点，每穿过一个边界深度加1，超过深度限制的边界记为未展开；追踪结果按(起点, 深度)记忆。
+被调用方法的返回值会继续追到它的形参以及这些形参的所有调用者，不区分是从哪个调用点进入的。
+数据流图在构建后不再变化，调用关系变化后ProjectAnalyzer会用新的数据流图创建新的追踪器。
+服务模式下一个追踪器会回答很多查询，摘要和追踪结果都放在有界的LruCache中，超过上限时淘汰最久没有用到的，之后用到时重新计算。
+ */
+public class ParameterOriginTracer {
+    // 一个来源节点，depth是到达它时穿过的调用边界数
+    public record Origin(CallNode node, int depth) {
+    }
+
+    // 一次追踪的结果：来源按到达的顺序排列；truncated是因为深度限制没有展开的边界节点，boundariesExpanded是展开了的边界节点数(包括起点)
+    public record Trace(CallNode start, int depthLimit, List<Origin> origins, List<CallNode> truncated, int boundariesExpanded) {
+    }
+
+    // 一个边界节点的摘要：不穿过其他边界就能到达的来源，以及遇到的其他边界节点
+    private record Summary(List<CallNode> origins, List<CallNode> boundaries) {
+    }
+
+    private record TraceKey(CallNode start, int depthLimit) {
+    }
+
+    public static final int DEFAULT_MAX_SUMMARIES = 100_000;
+    public static final int DEFAULT_MAX_TRACES = 1_000;
+
+    private final CallGraph graph;
+    // CallNode没有重写equals，按对象身份比较
+    private final LruCache<CallNode, Summary> summaries;
+    private final LruCache<TraceKey, Trace> traces;
+
+    public ParameterOriginTracer(CallGraph graph) {
+        this(graph, DEFAULT_MAX_SUMMARIES, DEFAULT_MAX_TRACES);
+    }
+
+    public ParameterOriginTracer(CallGraph graph, int maxSummaries, int maxTraces) {
+        this.graph = graph;
+        this.summaries = new LruCache<>("参数来源摘要", maxSummaries);
+        this.traces = new LruCache<>("参数来源追踪", maxTraces);
+    }
+
+    public CallGraph getGraph() {
+        return graph;
+    }
+
+    // method的第index个形参的节点，方法不在数据流图中(例如没有源代码)时返回null
+    public CallNode parameterNode(MethodInfo method, int index) {
+        return graph.getNode(new CallGraph.NodeKey(CallNode.Kind.PARAMETER, method.getId(), method.getClassName(),
+                method.getParameterNames().get(index), method.getBeginLine(), index));
+    }
+
+    // 追踪method的第index个形参的来源，最多穿过depthLimit层调用边界；形参不在数据流图中时返回null
+    public Trace traceParameter(MethodInfo method, int index, int depthLimit) {
+        CallNode start = parameterNode(method, index);
+        return start == null ? null : trace(start, depthLimit);
+    }
+
+    // 追踪任意节点的来源，起点按边界节点处理
+    public Trace trace(CallNode start, int depthLimit) {
+        TraceKey key = new TraceKey(start, depthLimit);
+        Optional<Trace> cached = traces.get(key);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        Trace trace = expand(start, depthLimit);
+        traces.put(key, trace);
+        return trace;
+    }
+
+    // 缓存中的摘要个数
+    public int summaryCount() {
+        return (int) summaries.size();
+    }
+
+    // 两个缓存的大小、命中和淘汰的次数
+    @Override
+    public String toString() {
+        return summaries + "; " + traces;
+    }
+
+    private Trace expand(CallNode start, int depthLimit) {
+        List<Origin> origins = new ArrayList<>();
+        Set<CallNode> seenOrigins = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<CallNode> truncated = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<CallNode> reached = Collections.newSetFromMap(new IdentityHashMap<>());
+        // 按层展开：current是第depth层的边界节点
+        List<CallNode> current = List.of(start);
+        reached.add(start);
+        for (int depth = 0; !current.isEmpty(); depth++) {
+            List<CallNode> next = new ArrayList<>();
+            for (CallNode boundary : current) {
+                Summary summary = summaryOf(boundary);
+                // 没有任何流入的边界本身就是来源：没有调用者的方法的形参是入口，没有return的方法的返回值无从追踪
+                if (summary.origins().isEmpty() && summary.boundaries().isEmpty() && seenOrigins.add(boundary)) {
+                    origins.add(new Origin(boundary, depth));
+                }
+                for (CallNode origin : summary.origins()) {
+                    if (seenOrigins.add(origin)) {
+                        origins.add(new Origin(origin, depth));
+                    }
+                }
+                for (CallNode other : summary.boundaries()) {
+                    if (reached.contains(other)) {
+                        continue;
+                    }
+                    if (depth >= depthLimit) {
+                        truncated.add(other);
+                    } else {
+                        reached.add(other);
+                        next.add(other);
+                    }
+                }
+            }
+            current = next;
+        }
+        return new Trace(start, depthLimit, List.copyOf(origins), List.copyOf(truncated), reached.size());
+    }
+
+    // 从边界节点出发逆向遍历到其他边界节点为止，结果按边界节点记忆
+    private Summary summaryOf(CallNode boundary) {
+        Optional<Summary> cached = summaries.get(boundary);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        List<CallNode> origins = new ArrayList<>();
+        List<CallNode> boundaries = new ArrayList<>();
+        Set<CallNode> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<CallNode> pending = new ArrayDeque<>();
+        visited.add(boundary);
+        pending.add(boundary);
+        while (!pending.isEmpty()) {
+            CallNode node = pending.poll();
+            Set<CallNode> sources = node.getPrevNodes();
+            if (sources.isEmpty() && node != boundary) {
+                origins.add(node);
+                continue;
+            }
+            for (CallNode source : sources) {
+                if (!visited.add(source)) {
+                    continue;
+                }
+                if (isBoundary(source)) {
+                    boundaries.add(source);
+                } else {
+                    pending.add(source);
+                }
+            }
+        }
+        Summary summary = new Summary(origins, boundaries);
+        summaries.put(boundary, summary);
+        return summary;
+    }
+
+    private static boolean isBoundary(CallNode node) {
+        return node.getKind() == CallNode.Kind.PARAMETER || node.getKind() == CallNode.Kind.RETURN;
+    }
+
+    // 每个来源一行：[种类] 名称 in 类:行 (depth:穿过的调用边界数)，入口另外标出；最后列出因为深度限制没有展开的边界
+    public static String render(Trace trace) {
+        StringBuilder result = new StringBuilder();
+        for (Origin origin : trace.origins()) {
+            CallNode node = origin.node();
+            String kind = node.getKind() == CallNode.Kind.PARAMETER ? "ENTRY" : node.getKind().name();
+            result.append('[').append(kind).append("] ").append(node.getNodeInfo())
+                    .append(" (depth:").append(origin.depth()).append(")\n");
+        }
+        for (CallNode node : trace.truncated()) {
+            result.append("[TRUNCATED] ").append(node.getNodeInfo()).append('\n');
+        }
+        return result.toString();
+    }
+}
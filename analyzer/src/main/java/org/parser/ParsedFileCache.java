@@ -0,0 +1,68 @@
+package org.parser;
+
+import com.github.javaparser.JavaParser;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.lang.ref.SoftReference;
+import java.util.Optional;
+
+/*
+按需重新解析的文件缓存：链接完成后MethodInfo只保留摘要，AST和事实表都已释放(见ClassInfoInFile.releaseAst)，
+建立数据流图等需要源代码细节的查询再通过这里重新解析文件并提取事实表(见FileFacts)。
+最多保存maxFiles个文件，按最近最少使用的顺序淘汰；每一项是软引用，内存不足时垃圾回收器也可以提前回收，回收后下次使用时重新解析。
+事实表不需要符号解析，这里的解析器不带符号解析器；提取后立即丢掉AST，缓存的事实表不占住CompilationUnit。监视模式下文件变化后调用invalidate。
+ */
+public class ParsedFileCache {
+    public static final int DEFAULT_MAX_FILES = 64;
+
+    private final LruCache<File, SoftReference<FileFacts>> entries;
+    private final JavaParser javaParser = new JavaParser();
+    private long collected; // 软引用已被回收而重新解析的次数
+
+    public ParsedFileCache() {
+        this(DEFAULT_MAX_FILES);
+    }
+
+    public ParsedFileCache(int maxFiles) {
+        this.entries = new LruCache<>("重新解析的文件", maxFiles);
+    }
+
+    // 文件的事实表，不在缓存中或已被回收时重新解析；文件无法读取或有语法错误时返回null
+    public synchronized FileFacts get(File javaFile) {
+        Optional<SoftReference<FileFacts>> cached = entries.get(javaFile);
+        if (cached.isPresent()) {
+            FileFacts facts = cached.get().get();
+            if (facts != null) {
+                return facts;
+            }
+            collected++;
+        }
+        FileFacts facts = null;
+        try {
+            facts = javaParser.parse(javaFile).getResult().map(FileFacts::extract).orElse(null);
+            if (facts != null) {
+                // 数据流只需要事实表，不保留AST
+                facts.releaseAst();
+            }
+        } catch (FileNotFoundException e) {
+            System.out.println("无法读取 " + javaFile + ": " + e.getMessage());
+        }
+        if (facts != null) {
+            entries.put(javaFile, new SoftReference<>(facts));
+        } else {
+            entries.remove(javaFile);
+        }
+        return facts;
+    }
+
+    // 文件被修改或删除后丢弃缓存的事实表
+    public synchronized void invalidate(File javaFile) {
+        entries.remove(javaFile);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return entries + ", 被回收" + collected + "次";
+    }
+}
@@ -12,22 +12,33 @@ import com.github.javaparser.ast.body.VariableDeclarator;
 import com.github.javaparser.ast.expr.*;
 import com.github.javaparser.ast.stmt.ReturnStmt;
 import com.github.javaparser.resolution.declarations.ResolvedMethodDeclaration;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.symbolsolver.model.resolution.SymbolReference;
 import com.github.javaparser.symbolsolver.JavaSymbolSolver;
 import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
 import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
 import com.github.javaparser.symbolsolver.resolution.typesolvers.JavaParserTypeSolver;
 import com.github.javaparser.ast.body.Parameter;
-import com.github.javaparser.ast.type.Type;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import com.github.javaparser.Range;
 
 import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
-import com.google.common.collect.HashMultiset;
 import org.checkerframework.checker.units.qual.A;
 
 
@@ -45,24 +56,111 @@ public class ProjectAnalyzer implements Analyzable<ClassInfoInFile> {
     public List<ClassInfoInFile> classInfos=new ArrayList<>();     // 调用 analyze 获取所有类的信息
     //JieChu: 我觉得拿methodInfos做成员变量很合理
     public List<MethodInfo> methodInfos = new ArrayList<>();
+    // 按签名索引methodInfos，链接调用关系时使用
+    private MethodIndex methodIndex;
+    // 每个源文件对应的ClassInfoInFile，监视模式下按文件替换
+    private final Map<File, ClassInfoInFile> classInfosByFile = new HashMap<>();
+    // 分析缓存和各文件的内容哈希，未启用缓存时cache为null
+    private AnalysisCache cache;
+    private final Map<File, String> contentHashes = new HashMap<>();
+    // 懒加载模式下按需链接调用关系，非懒加载模式为null
+    private DemandLinker demandLinker;
+    // 冻结的调用关系图，查询时使用；调用关系变化后置为null，下次查询时重新构建
+    private CallGraphStore callGraph;
+    // callGraph的可达性索引，第一次做可达性查询时构建，对应的callGraph被替换后重新构建
+    private ReachabilityIndex reachabilityIndex;
+    // 参数来源追踪器及其数据流图对应的callGraph，callGraph被替换后重新建立数据流图
+    private ParameterOriginTracer originTracer;
+    private CallGraphStore originTracerBase;
+    // 链接完成后各文件的AST已经释放，需要源代码细节时从这里重新解析
+    private final ParsedFileCache parsedFiles = new ParsedFileCache();
+    // 各文件的数据流，文件和它链接到的方法都没变时重新建立数据流图直接合并，见findAllUsedExpr
+    private final Map<File, DataFlowBuilder.Fragment> dataFlowFragments = new HashMap<>();
+    // 解析调用目标的参数类型时使用，每次分析开始前清空
+    private final TypeResolutionCache typeResolutionCache = new TypeResolutionCache();
+    // 按“类名#方法名”查找方法和重载，methodInfos变化后重建
+    private OverloadIndex overloadIndex;
+    // 各阶段的耗时和解析失败的统计，同时注册为JMX MBean
+    private final AnalysisMetrics metrics = new AnalysisMetrics();
+    // 多模块分析时的各个模块(按依赖顺序)及其源文件，按包分析时为null
+    private final Map<SourceModule, List<File>> moduleFiles;
 
     // 构造函数，初始化分析器并配置JavaParser
     public ProjectAnalyzer(String packageName) {
+        this(packageName, false);
+    }
+
+    // lazy为true时只解析源文件，不链接调用关系，等到analyzeSpecificMethod查询时再按需链接
+    public ProjectAnalyzer(String packageName, boolean lazy) {
         this.packageName = packageName;
+        this.moduleFiles = null;
+        metrics.register(packageName);
         // 获取包目录下的所有Java文件
-        File directory = new File(GlobalVariables.getProjectPath() + packageName);
-        this.javaFiles = getJavaFiles(directory);
+        long started = metrics.start();
+        this.javaFiles = getJavaFiles(getSourceDirectory());
+        metrics.record(AnalysisMetrics.Phase.DISCOVERY, started);
+        metrics.recordFilesDiscovered(javaFiles.size());
+
+        if (lazy) {
+            // 懒加载需要AST来查找候选调用点，所以不使用分析缓存
+            classInfosByFile.putAll(parseJavaFiles(javaFiles, metrics));
+            rebuildInfoLists();
+            demandLinker = new DemandLinker(methodInfos, typeResolutionCache, metrics);
+        } else {
+            //JieChu: 为classInfos和methodInfos两大成员变量初始化
+            analyze();
+        }
+    }
 
-        //JieChu: 为classInfos和methodInfos两大成员变量初始化
+    /*
+    多模块分析：分析modules中所有源代码根目录下的所有文件，name是注册JMX统计时使用的名称。
+    每个模块用自己的类型解析器(本模块和它直接、间接依赖的模块的根目录)，模块按依赖顺序并行分析，
+    最后把所有模块的调用关系(包括跨模块的调用)链接成一张图。不使用分析缓存，不支持懒加载和监视模式。
+     */
+    public ProjectAnalyzer(String name, List<SourceModule> modules) {
+        this.packageName = "";
+        this.moduleFiles = new LinkedHashMap<>();
+        metrics.register(name);
+        long started = metrics.start();
+        this.javaFiles = new ArrayList<>();
+        for (SourceModule module : ModuleDiscovery.sortByDependencies(modules)) {
+            List<File> files = new ArrayList<>();
+            for (Path sourceRoot : module.sourceRoots()) {
+                files.addAll(getJavaFiles(sourceRoot.toFile()));
+            }
+            moduleFiles.put(module, files);
+            javaFiles.addAll(files);
+        }
+        metrics.record(AnalysisMetrics.Phase.DISCOVERY, started);
+        metrics.recordFilesDiscovered(javaFiles.size());
         analyze();
     }
 
+    // 包对应的源代码目录
+    public File getSourceDirectory() {
+        return new File(GlobalVariables.getProjectPath() + packageName);
+    }
+
+    public String getPackageName() {
+        return packageName;
+    }
+
+    public OverloadIndex getOverloadIndex() {
+        return overloadIndex;
+    }
+
+    public AnalysisMetrics getMetrics() {
+        return metrics;
+    }
+
     // 递归获取目录下的所有Java文件
     public static List<File> getJavaFiles(File directory) {
         List<File> javaFiles = new ArrayList<>();
         File[] files = directory.listFiles(); // 获取目录中的所有文件和子目录
 
         if (files != null) {
+            // listFiles返回的顺序依赖于文件系统，排序后每次运行的解析顺序和输出顺序都一致
+            Arrays.sort(files);
             for (File file : files) {
                 if (file.isDirectory()) {
                     // 如果是一个目录，则递归遍历
@@ -79,61 +177,581 @@ public class ProjectAnalyzer implements Analyzable<ClassInfoInFile> {
 
     // 分析项目中的类，并返回类信息列表
     public List<ClassInfoInFile> analyze() {
-        JavaParser javaParser = GlobalVariables.getJavaParser();
+        if (moduleFiles != null) {
+            analyzeModules();
+            return classInfos;
+        }
+        cache = GlobalVariables.isCacheEnabled() ? AnalysisCache.open(packageName) : null;
+        // 不使用缓存时解析所有文件；使用缓存时只解析变化的文件和受其影响的文件，其余从缓存恢复
+        Map<File, ClassInfoInFile> parsed = new HashMap<>();
+        Map<File, ClassInfoInFile> restored = new HashMap<>();
+        if (cache == null) {
+            parsed.putAll(parseJavaFiles(javaFiles, metrics));
+        } else {
+            loadWithCache(parsed, restored);
+        }
+        metrics.recordFilesRestored(restored.size());
+        classInfosByFile.putAll(restored);
+        classInfosByFile.putAll(parsed);
 
+        /*
+        下面几步初始化被解析项目中所有method的信息
+         */
+        //classInfos获取了所有类的信息(类中包含的所有方法)，将其添加到methodInfos中
+        rebuildInfoLists();
+        //签名索引只建一次，之后每个调用点都是一次哈希查找
+        typeResolutionCache.clear();
+        long started = metrics.start();
+        methodIndex = new MethodIndex(methodInfos, typeResolutionCache);
+        metrics.record(AnalysisMetrics.Phase.TYPE_RESOLUTION, started);
+        recordDeclarationFailures(methodInfos);
+        //调用methodInfo.analyze让每个methodInfos中的方法知道自己被谁调用了+调用了谁，以及每次被调用时的实参
+        //从缓存恢复的方法没有AST，按缓存中的调用点重新链接
+        started = metrics.start();
         for (File javaFile : javaFiles) {
-            try {
-                // 解析Java文件，一个cu代表一个java文件
-                CompilationUnit cu = javaParser.parse(javaFile).getResult().orElse(null);
-                if (cu != null) {
-                    // 创建类信息对象并分析
-                    ClassInfoInFile classInfoInFile = new ClassInfoInFile(cu);
-                    /*
-                    JieChu: 事实上，ClassInfoInFile.analyze()方法是根据传进去的cu来分析一个类中所有的MethodInfo,
-                    并将这些MethodInfo存入ClassInfo.methods。
-                    事实上，ClassInfoInFile的主要作用就是储存一个类的所有MethodInfo
-                     */
-                    classInfoInFile.analyze();
-                    classInfos.add(classInfoInFile);
+            ClassInfoInFile classInfo = classInfosByFile.get(javaFile);
+            if (classInfo == null) {
+                continue;
+            }
+            long fileStarted = metrics.start();
+            for (MethodInfo methodInfo : classInfo.getMethods()) {
+                if (methodInfo.hasDeclaration()) {
+                    methodInfo.analyze(methodIndex, metrics);
+                } else {
+                    methodInfo.replayCallSites(methodIndex);
                 }
+            }
+            metrics.recordFileTime(javaFile.getPath(), System.nanoTime() - fileStarted);
+        }
+        metrics.record(AnalysisMetrics.Phase.LINKING, started);
+
+        if (cache != null) {
+            updateCache(parsed);
+        }
+        releaseAsts(parsed.values());
+        return classInfos;
+    }
+
+    // 一个模块的分析结果：解析出的文件，以及每个方法中调用了项目内方法的调用点(还没有链接)
+    private record ModuleResult(Map<File, ClassInfoInFile> parsed, Map<MethodInfo, List<MethodInfo.ResolvedCall>> resolvedCalls) {
+    }
+
+    /*
+    多模块分析：每个模块在它依赖的模块都完成后开始，没有依赖关系的模块同时进行。
+    一个模块解析自己的文件，把方法加入共用的签名索引，再解析自己的调用点——这时它能调用到的方法(本模块和依赖模块中的)都已经在索引中。
+    解析调用点只修改调用者自己，所有模块完成后再按methodInfos的顺序链接，因此结果的顺序与模块完成的先后无关。
+     */
+    private void analyzeModules() {
+        typeResolutionCache.clear();
+        methodIndex = new MethodIndex(List.of(), typeResolutionCache);
+        Map<String, SourceModule> modulesByName = new HashMap<>();
+        for (SourceModule module : moduleFiles.keySet()) {
+            modulesByName.put(module.name(), module);
+        }
+
+        Map<String, CompletableFuture<ModuleResult>> builds = new HashMap<>();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(GlobalVariables.getParseThreads(), moduleFiles.size())));
+        // 所有模块共用一个解析线程池，同时分析多个模块时解析线程总数仍然是parseThreads，而不是每个模块各parseThreads个
+        ExecutorService parsePool = Executors.newFixedThreadPool(GlobalVariables.getParseThreads());
+        Map<MethodInfo, List<MethodInfo.ResolvedCall>> resolvedCalls = new HashMap<>();
+        try {
+            // moduleFiles按依赖顺序排列，依赖的模块的任务已经创建
+            for (Map.Entry<SourceModule, List<File>> entry : moduleFiles.entrySet()) {
+                SourceModule module = entry.getKey();
+                CompletableFuture<?>[] dependencies = module.dependencies().stream()
+                        .map(builds::get)
+                        .filter(Objects::nonNull)
+                        .toArray(CompletableFuture[]::new);
+                // 依赖的模块分析失败时仍然分析这个模块，只是缺少到失败模块的调用
+                builds.put(module.name(), CompletableFuture.allOf(dependencies)
+                        .exceptionally(e -> null)
+                        .thenApplyAsync(ignored -> buildModule(module, entry.getValue(), modulesByName, parsePool), pool));
+            }
+            for (SourceModule module : moduleFiles.keySet()) {
+                try {
+                    ModuleResult result = builds.get(module.name()).join();
+                    classInfosByFile.putAll(result.parsed());
+                    resolvedCalls.putAll(result.resolvedCalls());
+                } catch (CompletionException e) {
+                    System.out.println("模块 " + module.name() + " 分析失败");
+                    e.getCause().printStackTrace();
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+            parsePool.shutdownNow();
+        }
+
+        rebuildInfoLists();
+        long started = metrics.start();
+        for (MethodInfo methodInfo : methodInfos) {
+            List<MethodInfo.ResolvedCall> calls = resolvedCalls.get(methodInfo);
+            if (calls != null) {
+                methodInfo.linkResolvedCalls(calls, metrics);
+            }
+        }
+        metrics.record(AnalysisMetrics.Phase.LINKING, started);
+        releaseAsts(classInfos);
+    }
+
+    /*
+    链接完成后释放AST，只保留方法摘要；懒加载模式按需链接时还要用到AST，不调用这里。
+    类型解析缓存的键是符号解析器的AST中的参数类型节点，不清掉的话这些CompilationUnit仍然无法回收。
+     */
+    private void releaseAsts(Collection<ClassInfoInFile> parsed) {
+        for (ClassInfoInFile classInfo : parsed) {
+            classInfo.releaseAst();
+        }
+        typeResolutionCache.releaseEntries();
+    }
+
+    // 在模块的工作线程中执行：在共用的parsePool中解析文件、把方法加入签名索引、解析调用点
+    private ModuleResult buildModule(SourceModule module, List<File> files, Map<String, SourceModule> modulesByName, ExecutorService parsePool) {
+        if (module.sourceRoots().isEmpty()) {
+            return new ModuleResult(Map.of(), Map.of());
+        }
+        // 本模块的第一个根目录之外，其他根目录和依赖模块的根目录都作为依赖加入类型解析器
+        TypeSolverCaches ownCaches = GlobalVariables.getTypeSolverCaches(module.sourceRoots().get(0));
+        List<TypeSolverCaches> dependencyCaches = new ArrayList<>();
+        for (Path sourceRoot : module.sourceRoots().subList(1, module.sourceRoots().size())) {
+            dependencyCaches.add(GlobalVariables.getTypeSolverCaches(sourceRoot));
+        }
+        for (SourceModule dependency : ModuleDiscovery.transitiveDependencies(module, modulesByName)) {
+            for (Path sourceRoot : dependency.sourceRoots()) {
+                dependencyCaches.add(GlobalVariables.getTypeSolverCaches(sourceRoot));
+            }
+        }
+        LruCache<String, SymbolReference<ResolvedReferenceTypeDeclaration>> combinedTypes =
+                ownCaches.createCombinedCache("类型查找(" + module.name() + ")");
+        Map<File, ClassInfoInFile> parsed = parseJavaFiles(files, metrics,
+                () -> GlobalVariables.createJavaParser(ownCaches.createTypeSolver(dependencyCaches, combinedTypes)), parsePool);
+
+        List<MethodInfo> methods = new ArrayList<>();
+        for (ClassInfoInFile classInfo : parsed.values()) {
+            methods.addAll(classInfo.getMethods());
+        }
+        long started = metrics.start();
+        for (MethodInfo method : methods) {
+            methodIndex.put(method);
+        }
+        metrics.record(AnalysisMetrics.Phase.TYPE_RESOLUTION, started);
+        recordDeclarationFailures(methods);
+
+        Map<MethodInfo, List<MethodInfo.ResolvedCall>> resolvedCalls = new HashMap<>();
+        started = metrics.start();
+        for (File javaFile : files) {
+            ClassInfoInFile classInfo = parsed.get(javaFile);
+            if (classInfo == null) {
+                continue;
+            }
+            long fileStarted = metrics.start();
+            for (MethodInfo method : classInfo.getMethods()) {
+                resolvedCalls.put(method, method.resolveCalls(methodIndex, metrics));
+            }
+            metrics.recordFileTime(javaFile.getPath(), System.nanoTime() - fileStarted);
+        }
+        metrics.record(AnalysisMetrics.Phase.LINKING, started);
+        return new ModuleResult(parsed, resolvedCalls);
+    }
+
+    // 签名无法解析的方法声明计入统计；从缓存恢复的方法没有声明，不需要解析
+    private void recordDeclarationFailures(Collection<MethodInfo> methods) {
+        for (MethodInfo method : methods) {
+            if (method.hasDeclaration() && method.getSignature() == null) {
+                metrics.recordDeclarationFailed(method.getSignatureFailure(), method.getClassName() + "." + method.getMethodName());
+            }
+        }
+    }
+
+    // 按javaFiles的顺序重建classInfos和methodInfos，保证输出顺序确定
+    private void rebuildInfoLists() {
+        classInfos.clear();
+        methodInfos.clear();
+        for (File javaFile : javaFiles) {
+            ClassInfoInFile classInfo = classInfosByFile.get(javaFile);
+            if (classInfo != null) {
+                classInfos.add(classInfo);
+                methodInfos.addAll(classInfo.getMethods());     // 把 classInfos 里的信息加入 methodInfos，把一个列表中的元素加到另一个列表中
+            }
+        }
+        for (int i = 0; i < methodInfos.size(); i++) {
+            methodInfos.get(i).setId(i);
+        }
+        overloadIndex = new OverloadIndex(methodInfos);
+    }
+
+    // 监视模式下源文件被修改或新建后调用：只重新解析这一个文件，撤销并重建与它有关的调用关系
+    public synchronized void updateFile(File javaFile) {
+        patchFile(javaFile, true, new HashSet<>());
+    }
+
+    // 监视模式下源文件被删除后调用
+    public synchronized void removeFile(File javaFile) {
+        patchFile(javaFile, false, new HashSet<>());
+    }
+
+    /*
+    增量更新一个文件：
+    1. 撤销旧文件中的方法发出和收到的所有调用关系及实参，记下其他文件中调用过这些方法的方法；
+    2. 重新解析文件(exists为false时表示文件已删除)，把新方法加入索引并链接它们发出的调用；
+    3. 其他文件中的调用者按自己记录的调用点签名重新链接到新方法，不需要重新解析；
+    4. 某个方法名的签名集合发生变化时(新增方法、删除方法、修改了参数类型)，有同名调用的文件也要重新解析：
+       之前没能链接上的调用可能链接到新方法，指向已经消失的签名的调用要重新解析目标。
+    patched记录本轮已经更新过的文件，防止互相依赖的文件反复更新。
+     */
+    private void patchFile(File javaFile, boolean exists, Set<File> patched) {
+        if (demandLinker != null) {
+            throw new IllegalStateException("懒加载模式不支持增量更新");
+        }
+        if (moduleFiles != null) {
+            throw new IllegalStateException("多模块分析不支持增量更新");
+        }
+        // 只有第一个文件的内容发生了变化，之后的文件是因为同名方法的签名变化而重新解析的
+        boolean contentChanged = patched.isEmpty();
+        if (!patched.add(javaFile)) {
+            return;
+        }
+        callGraph = null;
+        // 文件重新解析后符号解析器换了一份AST，之前缓存的节点不会再被用到
+        typeResolutionCache.clear();
+
+        ClassInfoInFile oldClassInfo = classInfosByFile.remove(javaFile);
+        Set<MethodInfo> affectedCallers = new LinkedHashSet<>();
+        // 修改前后每个方法名对应的签名，签名无法解析时记为null
+        Map<String, Set<String>> oldSignatures = new HashMap<>();
+        if (oldClassInfo != null) {
+            for (MethodInfo method : oldClassInfo.getMethods()) {
+                method.retract(methodIndex, affectedCallers);
+                oldSignatures.computeIfAbsent(method.getMethodName(), name -> new HashSet<>()).add(method.getSignature());
+            }
+            for (MethodInfo method : oldClassInfo.getMethods()) {
+                methodIndex.remove(method);
+            }
+            affectedCallers.removeAll(oldClassInfo.getMethods());
+        }
+
+        ClassInfoInFile newClassInfo = null;
+        // 符号解析器缓存和重新解析的文件缓存中还留着这个文件修改前的AST
+        GlobalVariables.getTypeSolverCaches().invalidate(javaFile);
+        parsedFiles.invalidate(javaFile);
+        if (contentChanged) {
+            methodIndex.forgetUnresolvable(javaFile);
+        }
+        if (exists) {
+            try {
+                newClassInfo = parseJavaFile(GlobalVariables.createJavaParser(), javaFile, metrics);
             } catch (FileNotFoundException e) {
                 e.printStackTrace();
             }
         }
 
-        /*
-        下面的3个for循环初始化被解析项目中所有method的信息
-         */
-        //classInfos获取了所有类的信息(类中包含的所有方法)，将其添加到methodInfos中
+        javaFiles.remove(javaFile);
+        if (newClassInfo != null) {
+            javaFiles.add(javaFile);
+            Collections.sort(javaFiles);
+            classInfosByFile.put(javaFile, newClassInfo);
+        }
+        rebuildInfoLists();
+
+        Set<MethodInfo> newMethods = new HashSet<>();
+        Map<String, Set<String>> newSignatures = new HashMap<>();
+        if (newClassInfo != null) {
+            newMethods.addAll(newClassInfo.getMethods());
+            long started = metrics.start();
+            for (MethodInfo method : newClassInfo.getMethods()) {
+                methodIndex.put(method);
+                newSignatures.computeIfAbsent(method.getMethodName(), name -> new HashSet<>()).add(method.getSignature());
+            }
+            metrics.record(AnalysisMetrics.Phase.TYPE_RESOLUTION, started);
+        }
+        Set<String> changedMethodNames = new HashSet<>();
+        for (String name : union(oldSignatures.keySet(), newSignatures.keySet())) {
+            if (!Objects.equals(oldSignatures.get(name), newSignatures.get(name))) {
+                changedMethodNames.add(name);
+            }
+        }
+        if (newClassInfo != null) {
+            methodIndex.forgetUnresolvable(changedMethodNames);
+            recordDeclarationFailures(newClassInfo.getMethods());
+            long started = metrics.start();
+            for (MethodInfo method : newClassInfo.getMethods()) {
+                method.analyze(methodIndex, metrics);
+            }
+            metrics.recordFileTime(javaFile.getPath(), metrics.record(AnalysisMetrics.Phase.LINKING, started));
+        }
+        for (MethodInfo caller : affectedCallers) {
+            caller.replayCallSitesInto(methodIndex, newMethods);
+        }
+
+        if (cache != null) {
+            try {
+                if (newClassInfo != null) {
+                    String contentHash = AnalysisCache.contentHash(javaFile);
+                    contentHashes.put(javaFile, contentHash);
+                    cache.put(newClassInfo.toCacheEntry(javaFile.getPath(), contentHash));
+                } else {
+                    contentHashes.remove(javaFile);
+                }
+                cache.retainPaths(javaFiles.stream().map(File::getPath).collect(Collectors.toSet()));
+                cache.save();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        if (newClassInfo != null) {
+            releaseAsts(List.of(newClassInfo));
+        }
+
+        if (!changedMethodNames.isEmpty()) {
+            BitSet changedNameSymbols = internAll(changedMethodNames);
+            BitSet noSignatures = new BitSet();
+            for (Map.Entry<File, ClassInfoInFile> entry : new ArrayList<>(classInfosByFile.entrySet())) {
+                if (entry.getValue() != newClassInfo && entry.getValue().getMethods().stream()
+                        .anyMatch(method -> method.dependsOn(noSignatures, changedNameSymbols))) {
+                    patchFile(entry.getKey(), true, patched);
+                }
+            }
+        }
+    }
+
+    // 字符串在符号表中的编号的集合
+    private static BitSet internAll(Collection<String> names) {
+        BitSet symbols = new BitSet();
+        for (String name : names) {
+            symbols.set(GlobalVariables.getSymbolTable().intern(name));
+        }
+        return symbols;
+    }
+
+    private static Set<String> union(Set<String> first, Set<String> second) {
+        Set<String> result = new HashSet<>(first);
+        result.addAll(second);
+        return result;
+    }
+
+    /*
+    对照分析缓存加载文件：内容哈希和版本都没变的文件直接从缓存恢复，其余文件重新解析。
+    之后再找出受变化影响的文件——调用了变化(或已删除)文件中的方法，或者有调用(不论之前是否链接上)与变化的文件中声明的方法同名，可能改为调用新增的重写或重载，
+    或者用到了类型层面有变化的类型(父类型、成员变量类型或方法返回类型变了，见TypeSummary)及经过它们的类型，调用可能解析到另一个类的方法——
+    这些文件的调用点需要重新解析，因此也重新解析。
+     */
+    private void loadWithCache(Map<File, ClassInfoInFile> parsed, Map<File, ClassInfoInFile> restored) {
+        List<File> changedFiles = new ArrayList<>();
+        Set<String> unchangedPaths = new HashSet<>();
+        for (File javaFile : javaFiles) {
+            try {
+                String contentHash = AnalysisCache.contentHash(javaFile);
+                contentHashes.put(javaFile, contentHash);
+                AnalysisCache.FileEntry entry = cache.getValid(javaFile.getPath(), contentHash);
+                if (entry != null) {
+                    restored.put(javaFile, new ClassInfoInFile(entry));
+                    unchangedPaths.add(javaFile.getPath());
+                    continue;
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            changedFiles.add(javaFile);
+        }
+        parsed.putAll(parseJavaFiles(changedFiles, metrics));
+
+        // 变化或已删除的文件中原有方法的签名，以及变化的文件中现在声明的方法名
+        Set<String> changedSignatures = new HashSet<>();
+        for (AnalysisCache.FileEntry entry : cache.getEntries()) {
+            if (!unchangedPaths.contains(entry.path())) {
+                for (MethodSummary summary : entry.methods()) {
+                    if (summary.signature() != null) {
+                        changedSignatures.add(summary.signature());
+                    }
+                }
+            }
+        }
+        Set<String> changedMethodNames = new HashSet<>();
+        for (ClassInfoInFile classInfo : parsed.values()) {
+            for (MethodInfo method : classInfo.getMethods()) {
+                changedMethodNames.add(method.getMethodName());
+            }
+        }
+
+        // 类型层面有变化的类型：变化、新增或已删除的文件中，与缓存中的TypeSummary不同的文件声明的所有类型
+        Map<String, List<TypeSummary>> previousTypes = new HashMap<>();
+        for (AnalysisCache.FileEntry entry : cache.getEntries()) {
+            if (!unchangedPaths.contains(entry.path())) {
+                previousTypes.put(entry.path(), entry.types());
+            }
+        }
+        Set<String> changedTypes = new HashSet<>();
+        for (Map.Entry<File, ClassInfoInFile> entry : parsed.entrySet()) {
+            List<TypeSummary> previous = previousTypes.remove(entry.getKey().getPath());
+            List<TypeSummary> current = entry.getValue().getTypes();
+            if (!current.equals(previous)) {
+                addTypeNames(changedTypes, current);
+                addTypeNames(changedTypes, previous);
+            }
+        }
+        for (List<TypeSummary> deleted : previousTypes.values()) {
+            addTypeNames(changedTypes, deleted);
+        }
+        Set<String> affectedTypes = typesDependingOn(changedTypes, union(restored.values(), parsed.values()));
+
+        BitSet changedSignatureSymbols = internAll(changedSignatures);
+        BitSet changedNameSymbols = internAll(changedMethodNames);
+        List<File> dependentFiles = new ArrayList<>();
+        for (File javaFile : javaFiles) {
+            ClassInfoInFile classInfo = restored.get(javaFile);
+            if (classInfo != null && (classInfo.getReferencedNames().stream().anyMatch(affectedTypes::contains)
+                    || classInfo.getMethods().stream().anyMatch(method -> method.dependsOn(changedSignatureSymbols, changedNameSymbols)))) {
+                dependentFiles.add(javaFile);
+            }
+        }
+        restored.keySet().removeAll(dependentFiles);
+        parsed.putAll(parseJavaFiles(dependentFiles, metrics));
+    }
+
+    private static void addTypeNames(Set<String> names, List<TypeSummary> types) {
+        if (types != null) {
+            for (TypeSummary type : types) {
+                names.add(type.name());
+            }
+        }
+    }
+
+    private static List<ClassInfoInFile> union(Collection<ClassInfoInFile> first, Collection<ClassInfoInFile> second) {
+        List<ClassInfoInFile> result = new ArrayList<>(first);
+        result.addAll(second);
+        return result;
+    }
+
+    /*
+    changedTypes以及所有直接或间接经过它们的类型：父类型、成员变量类型或方法返回类型中出现了受影响的类型的类型也受影响，
+    例如Sub extends Base中Base的父类变了，调用Sub的方法也可能解析到别的类。只按简单名匹配，同名的类型一起算作受影响。
+     */
+    private static Set<String> typesDependingOn(Set<String> changedTypes, List<ClassInfoInFile> classInfos) {
+        Map<String, List<String>> mentionedBy = new HashMap<>();
         for (ClassInfoInFile classInfo : classInfos) {
-            methodInfos.addAll(classInfo.getMethods());     // 把 classInfos 里的信息加入 methodInfos，把一个列表中的元素加到另一个列表中
+            for (TypeSummary type : classInfo.getTypes()) {
+                for (String mentioned : type.mentionedTypes()) {
+                    mentionedBy.computeIfAbsent(mentioned, key -> new ArrayList<>()).add(type.name());
+                }
+            }
         }
-        //调用methodInfo.analyze让每个methodInfos中的方法知道自己被谁调用了+调用了谁
-        for (MethodInfo methodInfo : methodInfos) {
-            methodInfo.analyze(methodInfos);
+        Set<String> affected = new HashSet<>(changedTypes);
+        Deque<String> pending = new ArrayDeque<>(changedTypes);
+        while (!pending.isEmpty()) {
+            for (String dependent : mentionedBy.getOrDefault(pending.pop(), List.of())) {
+                if (affected.add(dependent)) {
+                    pending.push(dependent);
+                }
+            }
         }
-        //MethodInfo的getInvokedParameters方法是用来得到当该MethodInfo被调用时的所有参数来源(参数名+所属类+)的
-        //MethodInfo.getInvokedParameters要发挥作用必须得到MethodInfo.methodCallingThis字段被完全初始化，也就是上面的methodInfo.analyze(methodInfos);被调用
-        for (MethodInfo methodInfo : methodInfos) {
-            methodInfo.getInvokedParameters();
+        return affected;
+    }
+
+    // 把重新解析过的文件写回缓存，并删除已经不存在的文件的缓存项
+    private void updateCache(Map<File, ClassInfoInFile> parsed) {
+        Set<String> paths = new HashSet<>();
+        for (File javaFile : javaFiles) {
+            paths.add(javaFile.getPath());
         }
+        cache.retainPaths(paths);
+        for (Map.Entry<File, ClassInfoInFile> entry : parsed.entrySet()) {
+            String contentHash = contentHashes.get(entry.getKey());
+            if (contentHash != null) {
+                cache.put(entry.getValue().toCacheEntry(entry.getKey().getPath(), contentHash));
+            }
+        }
+        cache.save();
+    }
 
-        return classInfos;
+
+
+    /*
+    并行解析所有Java文件：每个工作线程持有自己的JavaParser和符号解析器(两者都不是线程安全的)，
+    解析出的ClassInfoInFile按javaFiles的顺序合并，因此每次运行的结果顺序都相同。返回的Map以源文件为键。
+    解析阶段的耗时按墙上时间计入metrics，每个文件的解析耗时另外记录。
+     */
+    private static Map<File, ClassInfoInFile> parseJavaFiles(List<File> javaFiles, AnalysisMetrics metrics) {
+        return parseJavaFiles(javaFiles, metrics, GlobalVariables::createJavaParser);
     }
 
+    // parsers为每个工作线程创建JavaParser
+    private static Map<File, ClassInfoInFile> parseJavaFiles(List<File> javaFiles, AnalysisMetrics metrics, Supplier<JavaParser> parsers) {
+        if (javaFiles.isEmpty()) {
+            return new LinkedHashMap<>();
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(GlobalVariables.getParseThreads(), javaFiles.size()));
+        try {
+            return parseJavaFiles(javaFiles, metrics, parsers, pool);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
 
+    /*
+    在pool中解析，多模块分析时各模块共用同一个pool。parsers创建使用模块自己的类型解析器的JavaParser，
+    每次调用用一个新的ThreadLocal，共用的线程在不同模块的文件之间切换时也不会拿错解析器。
+     */
+    private static Map<File, ClassInfoInFile> parseJavaFiles(List<File> javaFiles, AnalysisMetrics metrics, Supplier<JavaParser> parsers,
+                                                             ExecutorService pool) {
+        Map<File, ClassInfoInFile> result = new LinkedHashMap<>();
+        if (javaFiles.isEmpty()) {
+            return result;
+        }
 
-    public Map.Entry<Boolean, List<MethodInfo>> checkFunctionOverload(String methodName, String className)
-    {
-        int reloadFunctionsNum=0;
-        List<MethodInfo> reloadMethods=new ArrayList<>();
-        for (MethodInfo methodInfo : methodInfos){
-            if (methodInfo.getMethodName().equals(methodName) &&
-                    methodInfo.getClassName().equals(className)){
-                reloadFunctionsNum++;
-                reloadMethods.add(methodInfo);
+        long started = metrics.start();
+        ThreadLocal<JavaParser> threadParsers = ThreadLocal.withInitial(parsers);
+        try {
+            List<Future<ClassInfoInFile>> futures = new ArrayList<>();
+            for (File javaFile : javaFiles) {
+                futures.add(pool.submit(() -> parseJavaFile(threadParsers.get(), javaFile, metrics)));
             }
+            // 按提交顺序取结果，保证合并顺序确定
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    ClassInfoInFile classInfoInFile = futures.get(i).get();
+                    if (classInfoInFile != null) {
+                        result.put(javaFiles.get(i), classInfoInFile);
+                    }
+                } catch (ExecutionException e) {
+                    e.getCause().printStackTrace();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            metrics.record(AnalysisMetrics.Phase.PARSE, started);
         }
+        return result;
+    }
+
+    // 解析单个Java文件，一个cu代表一个java文件
+    private static ClassInfoInFile parseJavaFile(JavaParser javaParser, File javaFile, AnalysisMetrics metrics) throws FileNotFoundException {
+        long started = metrics.start();
+        CompilationUnit cu = javaParser.parse(javaFile).getResult().orElse(null);
+        if (cu == null) {
+            return null;
+        }
+        metrics.recordFileParsed();
+        // 创建类信息对象并分析
+        ClassInfoInFile classInfoInFile = new ClassInfoInFile(cu);
+        /*
+        JieChu: 事实上，ClassInfoInFile.analyze()方法是根据传进去的cu来分析一个类中所有的MethodInfo,
+        并将这些MethodInfo存入ClassInfo.methods。
+        事实上，ClassInfoInFile的主要作用就是储存一个类的所有MethodInfo
+         */
+        long extractionStarted = metrics.start();
+        classInfoInFile.analyze();
+        metrics.record(AnalysisMetrics.Phase.EXTRACTION, extractionStarted);
+        metrics.recordFileTime(javaFile.getPath(), System.nanoTime() - started);
+        return classInfoInFile;
+    }
+
+
+    // 同名方法的列表及是否有重载；选出的方法交给analyzeSpecificMethod等接受MethodInfo的查询，查询时会检查它是否已经被替换
+    public synchronized Map.Entry<Boolean, List<MethodInfo>> checkFunctionOverload(String methodName, String className)
+    {
+        List<MethodInfo> reloadMethods = overloadIndex.getOverloads(className, methodName);
+        int reloadFunctionsNum = reloadMethods.size();
 
         if(reloadFunctionsNum==0){
             return null;
@@ -147,264 +765,281 @@ public class ProjectAnalyzer implements Analyzable<ClassInfoInFile> {
     }
 
 
-    // 分析指定类中的特定方法，并显示其调用的方法和被哪些方法调用
-    //假如传入analyzeSpecificMethod的参数chosenReloadMethodParams是null，则说明没有方法重载
-    public void analyzeSpecificMethod(String methodName, String className, int depth, Map<String,Type> chosenReloadMethodParams) {
-        for (MethodInfo methodInfo : methodInfos) {
-            if (methodInfo.getMethodName().equals(methodName) && methodInfo.getClassName().equals(className)){
-                //chosenReloadMethodParams!=null，说明有方法重载。
-                //有方法重载，则判断目前遍历到的方法的参数列表是否就是要找的方法，若不是，则continue
-                if(chosenReloadMethodParams!=null &&
-                        !HashMultiset.create(methodInfo.getParamList().values()).equals(HashMultiset.create(chosenReloadMethodParams.values()))){
-                    continue;
-                }
-                System.out.println("Input:");
-                System.out.println(methodInfo.getMethodName() + ", " + className + ", depth=" + depth);
-                System.out.println("========");
-                System.out.println("Output:");
-                String tempInvoked = methodInfo.getInvokedBy(depth, 1, packageName);
-                String tempInvokes = methodInfo.getInvokes(depth, 1, packageName);
-                if (!tempInvoked.equals("")) {
-                    System.out.println("It is invoked by the following:\n" + tempInvoked);
-                } else {
-                    System.out.println("It is invoked by the following:\n[NONE]");
-                }
-                if (!tempInvokes.equals("")) {
-                    System.out.println("It invokes the following:\n" + tempInvokes);
-                } else {
-                    System.out.println("It invokes the following:\n[NONE]");
-                }
-                //找到一个匹配的方法肯定就退出了啊，为了性能。
-                break;
+    // 分析指定类中的特定方法，并显示其调用的方法和被哪些方法调用；找不到方法时返回false
+    //parameterTypes是选择的重载方法的参数类型列表(见OverloadIndex)，为null时取第一个同名方法
+    public synchronized boolean analyzeSpecificMethod(String methodName, String className, int depth, String parameterTypes) {
+        String result = querySpecificMethod(methodName, className, depth, parameterTypes);
+        if (result != null) {
+            System.out.print(result);
+        }
+        return result != null;
+    }
+
+    /*
+    分析之前从checkFunctionOverload的结果中选出的方法。选择重载(可能要等用户输入)和查询不在同一次加锁中，
+    其间监视模式可能已经替换了方法所在的文件，这时方法已经不在methodInfos中，返回false，而不是换成另一个重载。
+     */
+    public synchronized boolean analyzeSpecificMethod(MethodInfo chosen, String className, int depth) {
+        String result = querySpecificMethod(chosen, className, depth);
+        if (result != null) {
+            System.out.print(result);
+        }
+        return result != null;
+    }
+
+    // 与analyzeSpecificMethod相同，但返回结果的文本而不是输出；找不到方法时返回null
+    public synchronized String querySpecificMethod(String methodName, String className, int depth, String parameterTypes) {
+        return formatSpecificMethod(findSpecificMethod(methodName, className, depth, parameterTypes), className, depth);
+    }
+
+    // 查询之前选出的方法，方法已经被替换时返回null
+    public synchronized String querySpecificMethod(MethodInfo chosen, String className, int depth) {
+        return formatSpecificMethod(prepareMethod(currentMethod(chosen), depth), className, depth);
+    }
+
+    private String formatSpecificMethod(MethodInfo methodInfo, String className, int depth) {
+        if (methodInfo == null) {
+            return null;
+        }
+        return formatQueryResult(getCallGraph(), methodInfo, methodInfo.getMethodName() + ", " + className, depth);
+    }
+
+    // 把查询结果边遍历边写到sink，找不到方法时返回false
+    public synchronized boolean exportSpecificMethod(String methodName, String className, int depth, String parameterTypes,
+                                                     CallGraphSink sink) throws IOException {
+        return exportMethod(findSpecificMethod(methodName, className, depth, parameterTypes), depth, sink);
+    }
+
+    // 把之前选出的方法的查询结果写到sink，方法已经被替换时返回false
+    public synchronized boolean exportSpecificMethod(MethodInfo chosen, int depth, CallGraphSink sink) throws IOException {
+        return exportMethod(prepareMethod(currentMethod(chosen), depth), depth, sink);
+    }
+
+    private boolean exportMethod(MethodInfo methodInfo, int depth, CallGraphSink sink) throws IOException {
+        if (methodInfo == null) {
+            return false;
+        }
+        new CallGraphExporter(getCallGraph()).export(methodInfo.getId(), depth, sink);
+        return true;
+    }
+
+    // chosen仍然是当前分析结果中的方法时返回它，所在文件已经重新解析或删除时返回null
+    private MethodInfo currentMethod(MethodInfo chosen) {
+        int id = chosen.getId();
+        return id < methodInfos.size() && methodInfos.get(id) == chosen ? chosen : null;
+    }
+
+    // 按参数类型列表选择重载，parameterTypes为null时取第一个同名方法，找不到时返回null
+    public synchronized MethodInfo findMethod(String methodName, String className, String parameterTypes) {
+        return selectOverload(methodName, className, parameterTypes);
+    }
+
+    private MethodInfo selectOverload(String methodName, String className, String parameterTypes) {
+        if (parameterTypes != null) {
+            return overloadIndex.find(className, methodName, parameterTypes);
+        }
+        List<MethodInfo> overloads = overloadIndex.getOverloads(className, methodName);
+        return overloads.isEmpty() ? null : overloads.get(0);
+    }
+
+    // 查找要分析的方法，懒加载模式下同时链接它depth范围内的调用关系
+    private MethodInfo findSpecificMethod(String methodName, String className, int depth, String parameterTypes) {
+        return prepareMethod(selectOverload(methodName, className, parameterTypes), depth);
+    }
+
+    // 懒加载模式下先链接方法depth范围内的调用关系，methodInfo为null时直接返回null
+    private MethodInfo prepareMethod(MethodInfo methodInfo, int depth) {
+        if (methodInfo != null && demandLinker != null) {
+            long started = metrics.start();
+            if (demandLinker.expand(methodInfo, depth)) {
+                callGraph = null;
             }
+            metrics.record(AnalysisMetrics.Phase.LINKING, started);
         }
+        return methodInfo;
+    }
+
+    /*
+    查询结果的文本：输入、调用methodInfo的方法、methodInfo调用的方法，每部分为空时输出[NONE]。
+    只读冻结的调用关系图，不需要加锁，批量查询时多个线程同时调用。
+     */
+    public static String formatQueryResult(CallGraphStore store, MethodInfo methodInfo, String input, int depth) {
+        String tempInvoked = CallTraversal.render(new CallTraversal(store).traverse(methodInfo.getId(), depth, CallAdjacency.Direction.CALLERS), store);
+        String tempInvokes = CallTraversal.render(new CallTraversal(store).traverse(methodInfo.getId(), depth, CallAdjacency.Direction.CALLEES), store);
+        StringBuilder result = new StringBuilder();
+        result.append("Input:\n").append(input).append(", depth=").append(depth).append('\n');
+        result.append("========\n");
+        result.append("Output:\n");
+        result.append("It is invoked by the following:\n").append(tempInvoked.isEmpty() ? "[NONE]" : tempInvoked).append('\n');
+        result.append("It invokes the following:\n").append(tempInvokes.isEmpty() ? "[NONE]" : tempInvokes).append('\n');
+        return result.toString();
     }
-    // 查看被调用的方法
 
+    // 获取methodInfo在depth范围内调用的所有方法，每行一个
+    public synchronized String getInvokes(MethodInfo methodInfo, int depth) {
+        CallGraphStore store = getCallGraph();
+        return CallTraversal.render(new CallTraversal(store).traverse(methodInfo.getId(), depth, CallAdjacency.Direction.CALLEES), store);
+    }
 
-    public void findAllUsedExpr() {
-        JavaParser javaParser = GlobalVariables.getJavaParser();;
+    // 获取depth范围内调用methodInfo的所有方法，每行一个
+    public synchronized String getInvokedBy(MethodInfo methodInfo, int depth) {
+        CallGraphStore store = getCallGraph();
+        return CallTraversal.render(new CallTraversal(store).traverse(methodInfo.getId(), depth, CallAdjacency.Direction.CALLERS), store);
+    }
 
-        for (File javaFile : javaFiles) {
-            try {
-                // Parse the Java file.
-                CompilationUnit cu = javaParser.parse(javaFile).getResult().orElse(null);
-                if (cu != null) {
-                    // 对所有的类遍历做处理，也即这个处理是类级别的；
-                    // javaparser 没有一个获取变量 scope 的功能，这意味这变量的 scope 需要我们自己去找？ 比如在 if 语句中定义变量
-                    // 更正：javaparser 可以通过获取 parent 的类型得到变量的作用域是函数、类、还是条件判断后面的语句 也即AfterConditionalStatement
-                    // 我们是否还需要一个和 scope 有关的数据结构，便于更精确的判断
-                    List<ClassOrInterfaceDeclaration> classDeclarations = cu.findAll(ClassOrInterfaceDeclaration.class);
-                    for (ClassOrInterfaceDeclaration classDeclaration : classDeclarations) {
-                        // 第一种流动情况：声明
-//                        processDeclarations(classDeclaration);
-                        // 第二种流动情况：赋值
-                        // 赋值的普通情况：右边是普通表达式
-//                        processAssignments(classDeclaration);
-                        // 赋值的特殊情况：右值是函数的返回值
-                        // 那么这里就要进入函数的 return 语句，继续往上分析
-                        // 这里还没做....(请杰哥做)
-                        // JieChu: Done.
-//                        processAssignmentsWithMethodCalls(classDeclaration);
-                        // 第三种流动情况：函数调用（仅考虑参数调用）
-//                        processMethodCalls(classDeclaration);
-                        // 第四种流动情况：函数调用返回值
-                        // 其它边界情况
-                        // 如果有 if else 语句？ 如果有 for 语句？ 如果先name1 = name2，再name2 = name3 ，这不应该允许它汇聚！
-                        // 这意味着我们需要在 callNode 里增加信息，表达它是哪个方法里的，如果它是类变量，那么就是哪个类里的
-                        // 当前没有办法处理类成员变量
-                        // 另一个注意点！！！！！
-                        // 当前，我们对于声明和赋值的右值，都只考虑了右值是一个普通变量(nameExpr)的情形
-                        // 但是，如果是 BinaryExpr，也就是类似于 name1 + name2 + "hello" 如何去做处理呢？
-                        // 首先要从 name1 + name2 + "hello" 来提取变量 -> 这个可以解决 name2 + "hello" 这种情况了
-                        // 可是，如果出现 name1 + name2 图里就会出现汇聚的情况了！这意味着我们回头追溯的时候需要分叉去追溯
-                    }
-                }
-            } catch (FileNotFoundException e) {
-                e.printStackTrace();
+    // 获取冻结的调用关系图，调用关系变化过则重新构建
+    public synchronized CallGraphStore getCallGraph() {
+        if (callGraph == null) {
+            callGraph = CallGraphStore.build(methodInfos);
+        }
+        return callGraph;
+    }
+
+    /*
+    获取调用关系图的可达性索引，第一次调用或调用关系变化后重新构建，构建时间与内存见ReachabilityIndex.toString。
+    懒加载模式下调用关系只链接了查询过的部分，索引会漏掉其余的路径，所以不支持。
+     */
+    public synchronized ReachabilityIndex getReachabilityIndex() {
+        if (demandLinker != null) {
+            throw new IllegalStateException("懒加载模式不支持可达性查询");
+        }
+        CallGraphStore store = getCallGraph();
+        if (reachabilityIndex == null || reachabilityIndex.getGraph() != store) {
+            reachabilityIndex = ReachabilityIndex.build(store);
+        }
+        return reachabilityIndex;
+    }
+
+    /*
+    所有递归组(互相递归的方法)，方法多的组在前，每组一行标题，组内每个方法一行，格式与查询结果相同但没有深度。
+    懒加载模式下只包含已经链接的调用关系中的递归。
+     */
+    public synchronized String formatRecursionGroups() {
+        CallGraphStore store = getCallGraph();
+        CallGraphCondensation condensation = store.getCondensation();
+        StringBuilder result = new StringBuilder();
+        List<Integer> groups = condensation.recursiveComponents();
+        for (int i = 0; i < groups.size(); i++) {
+            int[] members = condensation.members(groups.get(i));
+            result.append("递归组 ").append(i).append(" (").append(members.length).append("个方法):\n");
+            for (int member : members) {
+                result.append("[").append(store.getMethodName(member)).append(", ")
+                        .append(store.getQualifiedClassName(member)).append("]\n");
             }
         }
+        return result.toString();
     }
 
+    // 是否为懒加载模式
+    public boolean isLazy() {
+        return demandLinker != null;
+    }
 
-//    private void processDeclarations(ClassOrInterfaceDeclaration classDeclaration) {
-//        // 找到所有的变量声明语句
-//        List<VariableDeclarator> declarators = classDeclaration.findAll(VariableDeclarator.class);
-//        for (VariableDeclarator declarator : declarators) {
-//            // 获取声明的变量名
-//            String variableName = declarator.getNameAsString();
-//            // 获取声明变量的初始化表达式（如果有）
-//            Expression initializationExpr = declarator.getInitializer().orElse(null);
-//            // 获取声明语句的源代码范围
-//            Range declarationRange = declarator.getRange().orElse(null);
-//            // 获取起始行
-//            int startLine = (declarationRange != null) ? declarationRange.begin.line : 0;
-//
-//            // 创建 CallNode，将变量名作为节点信息，即：被声明的变量名+在哪个类里声明了这个变量+声明这个变量在该文件的哪一行
-//            CallNode nextNode = new CallNode(variableName, classDeclaration.getNameAsString(), startLine);
-//            // 如果有初始化表达式，将其作为 nextNode 添加到 CallNode
-//            if(initializationExpr instanceof MethodCallExpr)
-//            {
-//                // 右边是方法调用，处理这个情况
-//                MethodCallExpr methodCall = (MethodCallExpr) initializationExpr;
-//                Optional<MethodDeclaration> methodDeclaration = findMethodDeclaration(classDeclaration, methodCall);
-//
-//                if (methodDeclaration.isPresent()) {
-//                    // 找到方法声明，现在寻找return语句
-//                    methodDeclaration.get().findAll(ReturnStmt.class).forEach(returnStmt -> {
-//                        Expression returnExpr = returnStmt.getExpression().orElse(null);
-//                        // Return语句返回了一个变量
-//                        if (returnExpr instanceof NameExpr) {
-//                            String returnVariableName = ((NameExpr) returnExpr).getNameAsString();
-//
-//                            CallNode callNode = new CallNode(returnVariableName, classDeclaration.getNameAsString(), startLine);
-////                            CallNode nextNode = new CallNode(variableName, classDeclaration.getNameAsString(), startLine);
-//                            callNode.addNextNode(nextNode);
-//                            // 将 CallNode 添加到 CallGraph
-//                            graph.addNode(callNode);
-//
-//                            System.out.println(callNode.getNodeInfo() + " -> " + nextNode.getNodeInfo());
-//                        }
-//                    });
-//                }
-//            }
-//            else if (initializationExpr != null) {
-//                CallNode callNode = new CallNode(initializationExpr.toString(), classDeclaration.getNameAsString(), startLine);
-//                callNode.addNextNode(nextNode);
-//                // 将 CallNode 添加到 CallGraph
-//                graph.addNode(callNode);
-//                System.out.println(callNode.getNodeInfo() + " -> " + nextNode.getNodeInfo());
-//            }
-//        }
-//    }
-//
-//
-//    private void processAssignments(ClassOrInterfaceDeclaration classDeclaration) {
-//        // 处理赋值情况的代码
-//        List<AssignExpr> assignExprs = classDeclaration.findAll(AssignExpr.class);
-//        for (AssignExpr assignExpr : assignExprs) {
-//            // 获取赋值前面的内容
-//            Expression leftExpr = assignExpr.getTarget();
-//            // 获取赋值后面的内容
-//            Expression rightExpr = assignExpr.getValue();
-//            // 获取赋值表达式的源代码范围
-//            Range expressionRange = assignExpr.getRange().orElse(null);
-//            // 获取起始行
-//            int startLine = 0;
-//            if (expressionRange != null)
-//                startLine = expressionRange.begin.line;
-//
-//            // 创建 CallNode，并将赋值前面的内容添加到 CallNode。节点包括：右值的名称/描述+在哪个类里做了赋值+在哪一行做了赋值
-//            CallNode callNode = new CallNode(rightExpr.toString().split("=")[0], classDeclaration.getNameAsString(), startLine);
-//
-//            // 如果赋值后面的内容不为空，将其作为 nextNode 添加到 CallNode
-//            if (rightExpr instanceof MethodCallExpr)
-//            {
-//
-//            }
-//            else if (rightExpr != null) {
-//                CallNode nextNode = new CallNode(leftExpr.toString(), classDeclaration.getNameAsString(), startLine);
-//                callNode.addNextNode(nextNode);
-//                // 将 CallNode 添加到 CallGraph
-//                graph.addNode(callNode);
-//                System.out.println(callNode.getNodeInfo() + " -> " + nextNode.getNodeInfo());
-//            }
-//        }
-//    }
-//
-//    //JieChu: 这个processAssignmentsWithMethodCalls目前只能处理等号右边的函数只返回一个变量的情况，我还没考虑返回的是一个表达式
-//    private void processAssignmentsWithMethodCalls(ClassOrInterfaceDeclaration classDeclaration) {
-//        // 处理赋值语句，特别是右边是方法调用的情况
-//        List<AssignExpr> assignExprs = classDeclaration.findAll(AssignExpr.class);
-//        for (AssignExpr assignExpr : assignExprs) {
-//            // 获取赋值左边和右边的内容
-//            Expression leftExpr = assignExpr.getTarget();
-//            Expression rightExpr = assignExpr.getValue();
-//
-//            // 获取赋值表达式的源代码范围和起始行
-//            Range expressionRange = assignExpr.getRange().orElse(null);
-//            int startLine = (expressionRange != null) ? expressionRange.begin.line : 0;
-//
-//            if (rightExpr instanceof MethodCallExpr) {
-//                // 右边是方法调用，处理这个情况
-//                MethodCallExpr methodCall = (MethodCallExpr) rightExpr;
-//                Optional<MethodDeclaration> methodDeclaration = findMethodDeclaration(classDeclaration, methodCall);
-//
-//                if (methodDeclaration.isPresent()) {
-//                    // 找到方法声明，现在寻找return语句
-//                    methodDeclaration.get().findAll(ReturnStmt.class).forEach(returnStmt -> {
-//                        Expression returnExpr = returnStmt.getExpression().orElse(null);
-//                        // Return语句返回了一个变量
-//                        if (returnExpr instanceof NameExpr) {
-//                            String returnVariableName = ((NameExpr) returnExpr).getNameAsString();
-//
-//                            CallNode callNode = new CallNode(returnVariableName, classDeclaration.getNameAsString(), startLine);
-//                            CallNode nextNode = new CallNode(leftExpr.toString(), classDeclaration.getNameAsString(), startLine);
-//                            callNode.addNextNode(nextNode);
-//                            // 将 CallNode 添加到 CallGraph
-//                            graph.addNode(callNode);
-//
-//                            System.out.println(returnVariableName + " in " + classDeclaration.getNameAsString() + ":" + startLine + " -> " + leftExpr);
-//                        }
-//                    });
-//                }
-//            }
-//        }
-//    }
-//
-//    //JieChu: 我用这个findMethodDeclaration来替代
-//    // classDeclaration.findFirst(MethodDeclaration.class,md -> md.getNameAsString().equals(methodName));
-//    //以查到函数定义，是因为我觉得我们应该考虑本类外的函数定义，我怀疑查找类外的函数会有些复杂，所以先放个findMethodDeclaration在这儿。
-//    private Optional<MethodDeclaration> findMethodDeclaration(ClassOrInterfaceDeclaration classDeclaration, MethodCallExpr methodCall) {
-//        // 根据方法调用查找当前类中对应的方法声明
-//        String methodName = methodCall.getNameAsString();
-//        for (MethodDeclaration method : classDeclaration.getMethods()) {
-//            if (method.getNameAsString().equals(methodName)) {
-//                // 参数数量和方法调用的参数数量相同，可以增加更多检查确保它是正确的方法
-//                if (method.getParameters().size() == methodCall.getArguments().size()) {
-//                    return Optional.of(method);
-//                }
-//            }
-//        }
-//        return Optional.empty();
-//    }
-//
-//
-//    private void processMethodCalls(ClassOrInterfaceDeclaration classDeclaration) {
-//        // 再去找函数调用的情况
-//        List<MethodCallExpr> methodCalls = classDeclaration.findAll(MethodCallExpr.class);
-//        for (MethodCallExpr methodCall : methodCalls) {
-//            String methodName = methodCall.getNameAsString(); // 获取方法名
-//            NodeList<Expression> arguments = methodCall.getArguments(); // 获取参数列表
-//
-//            // 找到函数的原始定义
-//            //JieChu: 但是这里只能找到本类中的函数定义啊，假如这里的对函数传参的情况中，函数是其他类的函数呢？
-//            Optional<MethodDeclaration> methodDeclaration = findMethodDeclaration(classDeclaration, methodCall);
-//
-//            if (methodDeclaration.isPresent()) {
-//                MethodDeclaration method = methodDeclaration.get();
-//                NodeList<Parameter> parameters = method.getParameters();
-//                // 得到函数的形参列表
-//
-//                // 处理参数，将实际参数与形参关联起来
-//                for (int i = 0; i < arguments.size(); i++) {
-//                    String paramName = parameters.get(i).getNameAsString();
-//                    String argName = arguments.get(i).toString();
-//
-//                    // 创建 CallNode，表示函数的形参
-//                    CallNode paramNode = new CallNode(paramName, classDeclaration.getNameAsString(), method.getBegin().get().line);
-//
-//                    // 创建 CallNode，表示函数的实际参数
-//                    CallNode argNode = new CallNode(argName, classDeclaration.getNameAsString(), methodCall.getBegin().get().line);
-//                    argNode.addNextNode(paramNode);
-//
-//                    // 添加形参和实际参数到 CallGraph
-//                    graph.addNode(paramNode);
-//                    graph.addNode(argNode);
-//
-//                    System.out.println(argNode.getNodeInfo() + " -> " + paramNode.getNodeInfo());
-//                }
-//            }
-//        }
-//    }
-}
\ No newline at end of file
+    /*
+    from方法最少经过几层调用到达to方法(直接调用为1)，不可达时返回-1，找不到方法时返回null。
+    类名不含包名，参数类型列表的写法见OverloadIndex，为null时取第一个同名方法。
+     */
+    public synchronized Integer callDistance(String fromMethod, String fromClass, String fromParameterTypes,
+                                             String toMethod, String toClass, String toParameterTypes) {
+        return callDistance(selectOverload(fromMethod, fromClass, fromParameterTypes), selectOverload(toMethod, toClass, toParameterTypes));
+    }
+
+    // 两个之前选出的方法之间的调用距离，其中一个已经被替换时返回null
+    public synchronized Integer callDistance(MethodInfo fromChosen, MethodInfo toChosen) {
+        MethodInfo from = fromChosen == null ? null : currentMethod(fromChosen);
+        MethodInfo to = toChosen == null ? null : currentMethod(toChosen);
+        if (from == null || to == null) {
+            return null;
+        }
+        return getReachabilityIndex().distance(from.getId(), to.getId());
+    }
+
+    /*
+    获取参数来源追踪器，第一次调用或调用关系变化后重新建立数据流图(见findAllUsedExpr，只有受影响的文件重新建立)，
+    追踪的摘要和结果在两次变化之间保留，数量有上限(见ParameterOriginTracer)。
+    懒加载模式下数据流图只包含已经链接的调用点。
+     */
+    public synchronized ParameterOriginTracer getOriginTracer() {
+        CallGraphStore store = getCallGraph();
+        if (originTracer == null || originTracerBase != store) {
+            originTracer = new ParameterOriginTracer(findAllUsedExpr());
+            originTracerBase = store;
+        }
+        return originTracer;
+    }
+
+    /*
+    追踪方法的一个形参的来源，最多穿过depth层调用边界，结果的格式见ParameterOriginTracer.render。
+    parameter为形参名或下标；类名不含包名，参数类型列表的写法见OverloadIndex，为null时取第一个同名方法。
+    找不到方法或形参时返回null。懒加载模式下先链接方法depth范围内的调用关系。
+     */
+    public synchronized String traceParameterOrigins(String methodName, String className, String parameterTypes, String parameter, int depth) {
+        return traceOrigins(findSpecificMethod(methodName, className, depth, parameterTypes), parameter, depth);
+    }
+
+    // 追踪之前选出的方法的形参来源，方法已经被替换时返回null
+    public synchronized String traceParameterOrigins(MethodInfo chosen, String parameter, int depth) {
+        return traceOrigins(prepareMethod(currentMethod(chosen), depth), parameter, depth);
+    }
+
+    private String traceOrigins(MethodInfo method, String parameter, int depth) {
+        if (method == null) {
+            return null;
+        }
+        int index = method.getParameterNames().indexOf(parameter);
+        if (index < 0 && parameter.matches("\\d+")) {
+            index = Integer.parseInt(parameter);
+        }
+        if (index < 0 || index >= method.getParameterNames().size()) {
+            return null;
+        }
+        ParameterOriginTracer.Trace trace = getOriginTracer().traceParameter(method, index, depth);
+        return trace == null ? null : ParameterOriginTracer.render(trace);
+    }
+
+    // 类型解析缓存，用于查看命中统计
+    public TypeResolutionCache getTypeResolutionCache() {
+        return typeResolutionCache;
+    }
+
+    // 重新解析的文件缓存，用于查看命中统计
+    public ParsedFileCache getParsedFileCache() {
+        return parsedFiles;
+    }
+
+
+    /*
+    建立包中所有方法的数据流图(声明、赋值、实参到形参、返回值到使用处)，见DataFlowBuilder。
+    每个文件的数据流(DataFlowBuilder.Fragment)建立后保存下来，调用关系变化后只重新建立文件本身变了、
+    调用点增加了(懒加载模式)或者调用点链接到的方法被替换了的文件，其余文件直接合并，不需要重新解析。
+    需要重新建立时，懒加载模式直接使用分析时提取的事实表(见FileFacts)；其他模式下链接完成后事实表已经释放，
+    从分析缓存恢复的文件也没有事实表，这些文件通过ParsedFileCache重新解析和提取。
+    实参到形参的对应来自已经链接的调用点，懒加载模式下只包含已经链接的部分。
+     */
+    public synchronized CallGraph findAllUsedExpr() {
+        CallGraph graph = new CallGraph();
+        IntFunction<MethodInfo> methodsBySignature = signatureSymbol -> methodIndex == null ? null : methodIndex.get(signatureSymbol);
+        dataFlowFragments.keySet().retainAll(classInfosByFile.keySet());
+        for (File javaFile : javaFiles) {
+            ClassInfoInFile classInfo = classInfosByFile.get(javaFile);
+            if (classInfo == null) {
+                continue;
+            }
+            DataFlowBuilder.Fragment fragment = dataFlowFragments.get(javaFile);
+            if (fragment == null || !fragment.isCurrent(classInfo.getMethods(), methodsBySignature)) {
+                FileFacts facts = classInfo.getFacts();
+                if (facts == null) {
+                    facts = parsedFiles.get(javaFile);
+                }
+                if (facts == null) {
+                    dataFlowFragments.remove(javaFile);
+                    continue;
+                }
+                fragment = DataFlowBuilder.build(facts, classInfo.getMethods(), methodsBySignature);
+                dataFlowFragments.put(javaFile, fragment);
+            }
+            fragment.addTo(graph);
+        }
+        return graph;
+    }
+}
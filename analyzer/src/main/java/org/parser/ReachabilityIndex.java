@@ -0,0 +1,227 @@
+package org.parser;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/*
+可达性索引：回答“方法A是否直接或间接调用了方法B，最少经过几层调用”，不需要每次重新遍历调用关系。
+使用剪枝的地标标记法(pruned landmark labeling，一种2-hop标记)：
+每个方法v有两组标签，out(v)为(枢纽h, v到h的最短距离)，in(v)为(枢纽h, h到v的最短距离)，
+A到B的最短距离等于 min(out(A)中h的距离 + in(B)中h的距离)，对所有两组标签共有的枢纽h取最小值。
+构建时按调用关系的度从大到小依次以每个方法为枢纽，沿被调用者和调用者方向各做一次广度优先遍历，
+已经能由之前的枢纽得到同样短距离的方法不再加标签，也不再展开，所以被大量调用的方法会成为大部分路径的枢纽，标签很短。
+查询合并两个按枢纽排好序的标签数组，耗时只和标签长度有关，与调用关系图的大小无关。
+建好之后不可变，可以被多个线程同时查询；调用关系变化后要按新的CallGraphStore重新构建。
+ */
+public class ReachabilityIndex {
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private final CallGraphStore graph;
+    // 标签按CSR格式存放：方法v的标签为hubs[offsets[v]..offsets[v+1])，枢纽用它的序号表示，按序号从小到大排列
+    private final int[] outOffsets;
+    private final int[] outHubs;
+    private final int[] outDistances;
+    private final int[] inOffsets;
+    private final int[] inHubs;
+    private final int[] inDistances;
+    private final long buildNanos;
+
+    private ReachabilityIndex(CallGraphStore graph, int[] outOffsets, int[] outHubs, int[] outDistances,
+                              int[] inOffsets, int[] inHubs, int[] inDistances, long buildNanos) {
+        this.graph = graph;
+        this.outOffsets = outOffsets;
+        this.outHubs = outHubs;
+        this.outDistances = outDistances;
+        this.inOffsets = inOffsets;
+        this.inHubs = inHubs;
+        this.inDistances = inDistances;
+        this.buildNanos = buildNanos;
+    }
+
+    // 构建过程中每个方法的标签，按枢纽序号递增的顺序追加
+    private static final class Labels {
+        final int[][] hubs;
+        final int[][] distances;
+        final int[] sizes;
+
+        Labels(int methodCount) {
+            hubs = new int[methodCount][];
+            distances = new int[methodCount][];
+            sizes = new int[methodCount];
+        }
+
+        void add(int methodId, int hub, int distance) {
+            int size = sizes[methodId];
+            if (hubs[methodId] == null) {
+                hubs[methodId] = new int[4];
+                distances[methodId] = new int[4];
+            } else if (size == hubs[methodId].length) {
+                hubs[methodId] = Arrays.copyOf(hubs[methodId], size * 2);
+                distances[methodId] = Arrays.copyOf(distances[methodId], size * 2);
+            }
+            hubs[methodId][size] = hub;
+            distances[methodId][size] = distance;
+            sizes[methodId] = size + 1;
+        }
+    }
+
+    public static ReachabilityIndex build(CallGraphStore graph) {
+        long started = System.nanoTime();
+        int methodCount = graph.methodCount();
+
+        // 度大的方法先做枢纽；同样的度按id排列，保证每次构建的结果相同
+        Integer[] order = new Integer[methodCount];
+        for (int id = 0; id < methodCount; id++) {
+            order[id] = id;
+        }
+        Arrays.sort(order, (a, b) -> {
+            long weightA = (long) (graph.degree(a, CallAdjacency.Direction.CALLEES) + 1) * (graph.degree(a, CallAdjacency.Direction.CALLERS) + 1);
+            long weightB = (long) (graph.degree(b, CallAdjacency.Direction.CALLEES) + 1) * (graph.degree(b, CallAdjacency.Direction.CALLERS) + 1);
+            return weightA != weightB ? Long.compare(weightB, weightA) : Integer.compare(a, b);
+        });
+
+        Labels out = new Labels(methodCount);
+        Labels in = new Labels(methodCount);
+        int[] hubDistances = new int[methodCount]; // 按枢纽序号索引，当前枢纽自己的标签
+        Arrays.fill(hubDistances, UNREACHABLE);
+        int[] queue = new int[methodCount];
+        int[] distances = new int[methodCount];
+        Arrays.fill(distances, -1);
+
+        for (int rank = 0; rank < methodCount; rank++) {
+            int hub = order[rank];
+            // 被调用者方向：hub到u的最短距离写入in(u)；能经由out(hub)中的枢纽得到同样的距离时剪枝
+            prunedSearch(graph, hub, rank, CallAdjacency.Direction.CALLEES, out, in, hubDistances, queue, distances);
+            // 调用者方向：u到hub的最短距离写入out(u)
+            prunedSearch(graph, hub, rank, CallAdjacency.Direction.CALLERS, in, out, hubDistances, queue, distances);
+        }
+
+        int[] outOffsets = new int[methodCount + 1];
+        int[] inOffsets = new int[methodCount + 1];
+        for (int id = 0; id < methodCount; id++) {
+            outOffsets[id + 1] = outOffsets[id] + out.sizes[id];
+            inOffsets[id + 1] = inOffsets[id] + in.sizes[id];
+        }
+        int[] outHubs = new int[outOffsets[methodCount]];
+        int[] outDistances = new int[outOffsets[methodCount]];
+        int[] inHubs = new int[inOffsets[methodCount]];
+        int[] inDistances = new int[inOffsets[methodCount]];
+        for (int id = 0; id < methodCount; id++) {
+            if (out.sizes[id] > 0) {
+                System.arraycopy(out.hubs[id], 0, outHubs, outOffsets[id], out.sizes[id]);
+                System.arraycopy(out.distances[id], 0, outDistances, outOffsets[id], out.sizes[id]);
+            }
+            if (in.sizes[id] > 0) {
+                System.arraycopy(in.hubs[id], 0, inHubs, inOffsets[id], in.sizes[id]);
+                System.arraycopy(in.distances[id], 0, inDistances, inOffsets[id], in.sizes[id]);
+            }
+        }
+        return new ReachabilityIndex(graph, outOffsets, outHubs, outDistances, inOffsets, inHubs, inDistances,
+                System.nanoTime() - started);
+    }
+
+    /*
+    从hub出发沿direction做剪枝的广度优先遍历。hubSide是hub这一侧的标签(沿被调用者方向时为out(hub))，
+    reachedSide是被到达的方法这一侧的标签(沿被调用者方向时为in(u))，新标签(rank, 距离)加入reachedSide。
+    hubDistances、queue、distances是复用的工作数组，返回前恢复原状。
+     */
+    private static void prunedSearch(CallGraphStore graph, int hub, int rank, CallAdjacency.Direction direction,
+                                     Labels hubSide, Labels reachedSide, int[] hubDistances, int[] queue, int[] distances) {
+        for (int i = 0; i < hubSide.sizes[hub]; i++) {
+            hubDistances[hubSide.hubs[hub][i]] = hubSide.distances[hub][i];
+        }
+
+        int head = 0;
+        int[] tail = {1};
+        queue[0] = hub;
+        distances[hub] = 0;
+        while (head < tail[0]) {
+            int methodId = queue[head++];
+            int distance = distances[methodId];
+            if (methodId != hub && coveredDistance(reachedSide, methodId, hubDistances) <= distance) {
+                continue;
+            }
+            reachedSide.add(methodId, rank, distance);
+            graph.forEachNeighbor(methodId, direction, neighbor -> {
+                if (distances[neighbor] < 0) {
+                    distances[neighbor] = distance + 1;
+                    queue[tail[0]++] = neighbor;
+                }
+            });
+        }
+
+        for (int i = 0; i < tail[0]; i++) {
+            distances[queue[i]] = -1;
+        }
+        for (int i = 0; i < hubSide.sizes[hub]; i++) {
+            hubDistances[hubSide.hubs[hub][i]] = UNREACHABLE;
+        }
+    }
+
+    // 已有的标签能给出的hub与methodId之间的最短距离
+    private static int coveredDistance(Labels labels, int methodId, int[] hubDistances) {
+        int best = UNREACHABLE;
+        for (int i = 0; i < labels.sizes[methodId]; i++) {
+            int hubDistance = hubDistances[labels.hubs[methodId][i]];
+            if (hubDistance != UNREACHABLE) {
+                best = Math.min(best, hubDistance + labels.distances[methodId][i]);
+            }
+        }
+        return best;
+    }
+
+    // fromId是否直接或间接调用了toId；方法到自己总是可达
+    public boolean reaches(int fromId, int toId) {
+        return distance(fromId, toId) >= 0;
+    }
+
+    // fromId到toId最少经过几层调用(直接调用为1，方法到自己为0)，不可达时返回-1
+    public int distance(int fromId, int toId) {
+        if (fromId == toId) {
+            return 0;
+        }
+        int best = UNREACHABLE;
+        int i = outOffsets[fromId];
+        int j = inOffsets[toId];
+        int outEnd = outOffsets[fromId + 1];
+        int inEnd = inOffsets[toId + 1];
+        while (i < outEnd && j < inEnd) {
+            if (outHubs[i] == inHubs[j]) {
+                best = Math.min(best, outDistances[i] + inDistances[j]);
+                i++;
+                j++;
+            } else if (outHubs[i] < inHubs[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return best == UNREACHABLE ? -1 : best;
+    }
+
+    // 建立索引所用的调用关系图
+    public CallGraphStore getGraph() {
+        return graph;
+    }
+
+    public long getBuildMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(buildNanos);
+    }
+
+    public long getLabelCount() {
+        return outHubs.length + inHubs.length;
+    }
+
+    // 标签数组占用的内存(字节)
+    public long getMemoryBytes() {
+        return 4L * (outOffsets.length + inOffsets.length) + 8L * getLabelCount();
+    }
+
+    @Override
+    public String toString() {
+        int methodCount = graph.methodCount();
+        return "可达性索引: " + methodCount + "个方法, 标签" + getLabelCount() + "项(平均每个方法"
+                + String.format("%.1f", methodCount == 0 ? 0.0 : (double) getLabelCount() / methodCount) + "项), 内存"
+                + getMemoryBytes() / 1024 + " KB, 构建耗时" + getBuildMillis() + " ms";
+    }
+}
@@ -0,0 +1,10 @@
+package org.parser;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/*
+多模块分析中的一个模块：名称(Maven模块为artifactId)、源代码根目录(可以有多个)，以及它直接依赖的同一项目中的其他模块的名称。
+ */
+public record SourceModule(String name, List<Path> sourceRoots, List<String> dependencies) {
+}
@@ -0,0 +1,104 @@
+package org.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/*
+监视模式：用WatchService监视ProjectAnalyzer的源代码目录，某个Java文件被修改、新建或删除时，
+只对这个文件调用ProjectAnalyzer.updateFile/removeFile增量更新调用关系，而不是重新分析整个项目。
+ */
+public class SourceWatcher implements Runnable, AutoCloseable {
+    // 编辑器保存一个文件常常产生好几个事件，收到事件后再等这么久，把同一批事件合并处理
+    private static final long SETTLE_MILLIS = 100;
+
+    private final ProjectAnalyzer projectAnalyzer;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+
+    public SourceWatcher(ProjectAnalyzer projectAnalyzer) throws IOException {
+        this.projectAnalyzer = projectAnalyzer;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        registerAll(projectAnalyzer.getSourceDirectory().toPath());
+    }
+
+    // 注册目录及其所有子目录
+    private void registerAll(Path root) throws IOException {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path directory : (Iterable<Path>) paths.filter(Files::isDirectory)::iterator) {
+                directories.put(directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), directory);
+            }
+        }
+    }
+
+    // 一直运行直到线程被中断或close被调用
+    @Override
+    public void run() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.take();
+                Map<Path, Boolean> changedFiles = new LinkedHashMap<>();
+                collectEvents(key, changedFiles);
+                // 等待同一批事件到齐
+                while ((key = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    collectEvents(key, changedFiles);
+                }
+                for (Map.Entry<Path, Boolean> entry : changedFiles.entrySet()) {
+                    File javaFile = entry.getKey().toFile();
+                    if (entry.getValue()) {
+                        projectAnalyzer.updateFile(javaFile);
+                    } else {
+                        projectAnalyzer.removeFile(javaFile);
+                    }
+                    System.out.println("已更新: " + javaFile);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // close被调用，正常退出
+        }
+    }
+
+    // 收集一个WatchKey上的事件，值为true表示文件存在(修改或新建)，false表示已删除
+    private void collectEvents(WatchKey key, Map<Path, Boolean> changedFiles) {
+        Path directory = directories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW || directory == null) {
+                continue;
+            }
+            Path path = directory.resolve((Path) event.context());
+            if (event.kind() == ENTRY_CREATE && Files.isDirectory(path)) {
+                try {
+                    // 新建的目录也要监视，目录中已有的Java文件当作新建处理
+                    registerAll(path);
+                    try (Stream<Path> files = Files.walk(path)) {
+                        files.filter(file -> file.toString().endsWith(".java")).forEach(file -> changedFiles.put(file, true));
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            } else if (path.toString().endsWith(".java")) {
+                changedFiles.put(path, Files.exists(path));
+            }
+        }
+        if (!key.reset()) {
+            directories.remove(key);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+}
@@ -0,0 +1,77 @@
+package org.parser;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntFunction;
+
+/*
+按符号编号(见SymbolTable)索引的数组，代替以编号为键的Map：编号从0开始连续分配，查找就是一次下标访问，不装箱也不计算哈希。
+数组按用到的最大编号增长。多模块分析时多个线程同时读写：读不加锁，写加锁；
+元素放在AtomicReferenceArray中，增长时复制到新数组再发布，读到旧数组的线程只会看不到正在加入的元素，和在加入之前读一样。
+ */
+public class SymbolArray<T> {
+    private volatile AtomicReferenceArray<T> elements = new AtomicReferenceArray<>(256);
+    private int size; // 不为null的元素个数
+
+    // 编号对应的元素，没有时返回null
+    public T get(int id) {
+        AtomicReferenceArray<T> current = elements;
+        return id >= 0 && id < current.length() ? current.get(id) : null;
+    }
+
+    public T getOrDefault(int id, T defaultValue) {
+        T value = get(id);
+        return value != null ? value : defaultValue;
+    }
+
+    // 返回之前的元素
+    public synchronized T put(int id, T value) {
+        T previous = ensureCapacity(id).getAndSet(id, value);
+        size += (value != null ? 1 : 0) - (previous != null ? 1 : 0);
+        return previous;
+    }
+
+    // 没有元素时才放入，返回之前的元素
+    public synchronized T putIfAbsent(int id, T value) {
+        T previous = get(id);
+        return previous != null ? previous : put(id, value);
+    }
+
+    public synchronized T computeIfAbsent(int id, IntFunction<T> create) {
+        T value = get(id);
+        if (value == null) {
+            value = create.apply(id);
+            put(id, value);
+        }
+        return value;
+    }
+
+    // 只有当编号对应的正是value时才删除
+    public synchronized boolean remove(int id, T value) {
+        if (value == null || get(id) != value) {
+            return false;
+        }
+        put(id, null);
+        return true;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private AtomicReferenceArray<T> ensureCapacity(int id) {
+        AtomicReferenceArray<T> current = elements;
+        if (id < current.length()) {
+            return current;
+        }
+        int length = current.length();
+        while (length <= id) {
+            length *= 2;
+        }
+        AtomicReferenceArray<T> grown = new AtomicReferenceArray<>(length);
+        for (int i = 0; i < current.length(); i++) {
+            grown.set(i, current.get(i));
+        }
+        elements = grown;
+        return grown;
+    }
+}
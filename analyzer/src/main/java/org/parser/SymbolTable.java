@@ -0,0 +1,59 @@
+package org.parser;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+全项目共用的符号表：类名、方法名、签名等字符串在提取事实时映射为从0开始的连续编号，
+之后的比较和索引都用编号，只有输出结果时才用name取回字符串。
+符号只增不删，同一个字符串总是得到同一个编号，监视模式下文件重新解析后编号不变。
+多模块分析时多个线程同时加入；查找不加锁，只有加入新符号时加锁。
+ */
+public class SymbolTable {
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[256];
+    private int size;
+
+    // 字符串的编号，第一次出现时分配新编号
+    public int intern(String symbol) {
+        Integer id = ids.get(symbol);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(symbol);
+            if (id != null) {
+                return id;
+            }
+            String[] current = names;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, size * 2);
+            }
+            current[size] = symbol;
+            // 先发布数组再发布编号，拿到编号的线程一定能从names中取到字符串
+            names = current;
+            ids.put(symbol, size);
+            return size++;
+        }
+    }
+
+    // 已有字符串的编号，没有出现过时返回-1，不分配新编号；查询用户输入和解析结果时使用
+    public int lookup(String symbol) {
+        Integer id = ids.get(symbol);
+        return id == null ? -1 : id;
+    }
+
+    public String name(int id) {
+        return names[id];
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    // 两个编号组成一个键，例如(类名, 方法名)、(方法名, 参数个数)
+    public static long pair(int first, int second) {
+        return ((long) first << 32) | (second & 0xffffffffL);
+    }
+}
@@ -0,0 +1,74 @@
+package org.parser;
+
+import com.github.javaparser.ast.type.Type;
+import com.github.javaparser.resolution.declarations.ResolvedMethodDeclaration;
+import com.github.javaparser.resolution.types.ResolvedType;
+import com.github.javaparser.symbolsolver.javaparsermodel.declarations.JavaParserMethodDeclaration;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/*
+类型解析缓存：方法调用解析出的目标声明来自符号解析器自己缓存的AST，同一个方法被调用多少次，
+生成签名时它的参数类型就要解析多少次。这里按参数类型节点的对象身份记住解析结果，同一个声明只解析一次。
+实参的类型在methodCall.resolve()内部计算，符号解析器已经把结果存在表达式节点上，不需要再缓存。
+缓存只在一次分析(ProjectAnalyzer.analyze、监视模式下的一次文件更新)内有效，开始新的分析前调用clear。
+键是AST中的节点，缓存会一直占住这些节点所在的CompilationUnit，所以链接完成、释放AST时要调用releaseEntries。
+多模块分析时各模块的线程共用一个缓存：查找和放入加锁，解析类型本身不加锁，各线程可以同时解析。
+ */
+public class TypeResolutionCache {
+    private final Map<Type, ResolvedType> parameterTypes = new IdentityHashMap<>();
+    private long hits;
+    private long misses;
+
+    // 方法声明第index个参数的类型，可变参数为数组类型；源代码中的声明按参数类型节点缓存，JDK等没有AST的声明直接解析
+    public ResolvedType getParameterType(ResolvedMethodDeclaration method, int index) {
+        if (!(method instanceof JavaParserMethodDeclaration)) {
+            return method.getParam(index).getType();
+        }
+        Type typeNode = ((JavaParserMethodDeclaration) method).getWrappedNode().getParameter(index).getType();
+        synchronized (this) {
+            ResolvedType type = parameterTypes.get(typeNode);
+            if (type != null) {
+                hits++;
+                return type;
+            }
+            misses++;
+        }
+        // 两个线程同时解析同一个节点时结果相同，保留先放入的
+        ResolvedType type = method.getParam(index).getType();
+        synchronized (this) {
+            ResolvedType existing = parameterTypes.putIfAbsent(typeNode, type);
+            return existing != null ? existing : type;
+        }
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized int size() {
+        return parameterTypes.size();
+    }
+
+    // 丢掉缓存的节点和类型，保留命中统计，之后仍然可以查看这次分析的命中情况
+    public synchronized void releaseEntries() {
+        parameterTypes.clear();
+    }
+
+    // 清空缓存和命中统计
+    public synchronized void clear() {
+        parameterTypes.clear();
+        hits = 0;
+        misses = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "类型解析缓存: " + size() + "项, 命中" + hits + "次, 未命中" + misses + "次";
+    }
+}
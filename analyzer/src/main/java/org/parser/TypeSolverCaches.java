@@ -0,0 +1,102 @@
+package org.parser;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.symbolsolver.model.resolution.SymbolReference;
+import com.github.javaparser.symbolsolver.model.resolution.TypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.JavaParserTypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+/*
+一个源代码根目录对应的符号解析器缓存。JavaParserTypeSolver默认的缓存没有上限，大项目中被解析过的AST会一直留在内存里；
+这里换成有界的LruCache：解析过的文件按行数计权重，其余按项数计，超过上限时淘汰最久未使用的项。
+同一个根目录的所有符号解析器(并行解析的每个线程、监视模式下新建的解析器、同一个JVM中的多次分析)共用这些缓存。
+JavaParserTypeSolver按类型名缓存查找结果，只在自己的根目录中有效，所以缓存按根目录分开，不能跨根目录共用。
+多模块分析时一个模块的类型解析器还要在它依赖的模块的根目录中查找，这些根目录的缓存仍然各自共用；
+CombinedTypeSolver的查找结果取决于包含了哪些根目录，所以每个模块用createCombinedCache单独建一个。
+ */
+public class TypeSolverCaches {
+    private final Path sourceRoot;
+    private final long maxEntries;
+    private final LruCache<Path, Optional<CompilationUnit>> parsedFiles;
+    private final LruCache<Path, List<CompilationUnit>> parsedDirectories;
+    private final LruCache<String, SymbolReference<ResolvedReferenceTypeDeclaration>> foundTypes;
+    private final LruCache<String, SymbolReference<ResolvedReferenceTypeDeclaration>> combinedTypes;
+
+    // maxParsedLines：缓存的AST的总行数上限；maxEntries：目录和类型查找结果的项数上限
+    public TypeSolverCaches(Path sourceRoot, long maxParsedLines, long maxEntries) {
+        this.sourceRoot = sourceRoot;
+        this.maxEntries = maxEntries;
+        this.parsedFiles = new LruCache<>("已解析文件", maxParsedLines, TypeSolverCaches::lineCount);
+        this.parsedDirectories = new LruCache<>("已解析目录", maxEntries);
+        this.foundTypes = new LruCache<>("源代码类型", maxEntries);
+        this.combinedTypes = new LruCache<>("类型查找", maxEntries);
+    }
+
+    private static long lineCount(Optional<CompilationUnit> unit) {
+        return unit.flatMap(CompilationUnit::getRange).map(range -> (long) range.end.line).orElse(1L);
+    }
+
+    // 新建一个使用这些缓存的类型解析器：JDK中的类型用反射查找，项目中的类型在根目录下查找
+    public TypeSolver createTypeSolver() {
+        return createTypeSolver(List.of(), combinedTypes);
+    }
+
+    // 多模块分析时使用：依次在JDK、这个根目录和dependencies的根目录中查找，combinedTypes是模块自己的查找结果缓存
+    public TypeSolver createTypeSolver(List<TypeSolverCaches> dependencies,
+                                       LruCache<String, SymbolReference<ResolvedReferenceTypeDeclaration>> combinedTypes) {
+        CombinedTypeSolver combinedTypeSolver = new CombinedTypeSolver(
+                CombinedTypeSolver.ExceptionHandlers.IGNORE_NONE, List.of(), combinedTypes);
+        // add的第二个参数为false，否则会清空共用的缓存
+        combinedTypeSolver.add(new ReflectionTypeSolver(), false);
+        combinedTypeSolver.add(createSourceTypeSolver(), false);
+        for (TypeSolverCaches dependency : dependencies) {
+            combinedTypeSolver.add(dependency.createSourceTypeSolver(), false);
+        }
+        return combinedTypeSolver;
+    }
+
+    // 只在这个根目录中查找类型的解析器
+    private TypeSolver createSourceTypeSolver() {
+        return new JavaParserTypeSolver(sourceRoot, new JavaParser(new ParserConfiguration()),
+                parsedFiles, parsedDirectories, foundTypes);
+    }
+
+    public LruCache<String, SymbolReference<ResolvedReferenceTypeDeclaration>> createCombinedCache(String name) {
+        return new LruCache<>(name, maxEntries);
+    }
+
+    // 源文件变化后删除它的AST和包含它的目录；类型查找结果可能引用旧的AST，全部删除
+    public void invalidate(File javaFile) {
+        Path changed = javaFile.toPath().toAbsolutePath().normalize();
+        parsedFiles.removeIf(path -> path.toAbsolutePath().normalize().equals(changed));
+        parsedDirectories.removeIf(path -> changed.startsWith(path.toAbsolutePath().normalize()));
+        foundTypes.removeAll();
+        combinedTypes.removeAll();
+    }
+
+    public Path getSourceRoot() {
+        return sourceRoot;
+    }
+
+    public List<LruCache<?, ?>> getCaches() {
+        return List.of(parsedFiles, parsedDirectories, foundTypes, combinedTypes);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("符号解析器缓存(" + sourceRoot + "):");
+        for (LruCache<?, ?> cache : getCaches()) {
+            builder.append(System.lineSeparator()).append("  ").append(cache);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,14 @@
+package org.parser;
+
+import java.io.Serializable;
+import java.util.List;
+
+/*
+一个类、接口或枚举在类型层面的样子，写入分析缓存，用来判断文件的变化会不会改变别的文件中调用的解析结果。
+shape是类型名、父类型、成员变量的类型和方法返回类型的源代码，两次分析之间shape不同说明类型层面有变化；
+mentionedTypes是其中出现的类型的简单名，例如父类、成员变量的类型，这些类型变化时经过这个类型的调用也可能解析到别的方法。
+ */
+public record TypeSummary(String name,
+                          String shape,
+                          List<String> mentionedTypes) implements Serializable {
+}
@@ -0,0 +1,20 @@
+package org.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.parser.ProjectAnalyzer;
+
+import java.util.concurrent.TimeUnit;
+
+// 完整分析一个项目：ProjectAnalyzer的构造函数依次完成解析、建立签名索引和链接调用关系(ProjectAnalyzer.analyze)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+public class AnalyzeBenchmark {
+
+    @Benchmark
+    public ProjectAnalyzer analyze(SyntheticProject project) {
+        return new ProjectAnalyzer(SyntheticProject.PACKAGE_NAME);
+    }
+}
@@ -0,0 +1,22 @@
+package org.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/*
+benchmarks.jar的入口，参数与JMH命令行相同，例如：
+java -jar target/benchmarks.jar TraversalBenchmark -p methods=10000 -p fanOut=8
+默认加上GC profiler，每个基准测试同时报告吞吐量和分配速率(gc.alloc.rate、gc.alloc.rate.norm)。
+ */
+public class BenchmarkMain {
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
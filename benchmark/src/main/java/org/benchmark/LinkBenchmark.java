@@ -0,0 +1,63 @@
+package org.benchmark;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.parser.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+不含解析的链接阶段：源文件只在setup中解析一次，每次调用都在同一批AST上重新创建MethodInfo，
+建立签名索引并对每个方法调用MethodInfo.analyze(解析调用目标、链接调用关系、记录实参)。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+public class LinkBenchmark {
+    private List<CompilationUnit> units;
+    private List<MethodInfo> linkedMethods; // 已经链接好的方法，读取实参的基准测试使用
+
+    @Setup(Level.Trial)
+    public void parse(SyntheticProject project) throws IOException {
+        JavaParser javaParser = GlobalVariables.createJavaParser();
+        units = new ArrayList<>();
+        for (File javaFile : ProjectAnalyzer.getJavaFiles(project.getSourceDirectory())) {
+            units.add(javaParser.parse(javaFile).getResult().orElseThrow());
+        }
+        linkedMethods = link();
+    }
+
+    @Benchmark
+    public List<MethodInfo> link() {
+        List<MethodInfo> methods = new ArrayList<>();
+        for (CompilationUnit unit : units) {
+            methods.addAll(new ClassInfoInFile(unit).analyze());
+        }
+        MethodIndex methodIndex = new MethodIndex(methods, new TypeResolutionCache());
+        AnalysisMetrics metrics = new AnalysisMetrics();
+        for (MethodInfo method : methods) {
+            method.analyze(methodIndex, metrics);
+        }
+        return methods;
+    }
+
+    // 实参在链接时已经记录好，getInvokedParameters只是读取
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void invokedParameters(Blackhole blackhole) {
+        for (MethodInfo method : linkedMethods) {
+            for (List<ParameterInfo> arguments : method.getInvokedParameters()) {
+                blackhole.consume(arguments);
+            }
+        }
+    }
+}
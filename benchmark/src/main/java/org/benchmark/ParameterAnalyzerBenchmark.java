@@ -0,0 +1,22 @@
+package org.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.panalyzer.ParameterAnalyzer;
+
+import java.util.concurrent.TimeUnit;
+
+// parameterAnalyzer模块：只解析语法、不做符号解析的实参收集
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+public class ParameterAnalyzerBenchmark {
+
+    @Benchmark
+    public ParameterAnalyzer analyzeProject(SyntheticProject project) {
+        ParameterAnalyzer parameterAnalyzer = new ParameterAnalyzer();
+        parameterAnalyzer.analyzeProject(project.getSourceDirectory().getPath());
+        return parameterAnalyzer;
+    }
+}
@@ -0,0 +1,86 @@
+package org.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.parser.GlobalVariables;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/*
+基准测试用的合成项目：在临时目录中生成methods个静态方法，每个方法调用fanOut个随机选取的方法。
+每METHODS_PER_CLASS个方法放在一个类中，方法名在类之间重复，和真实项目一样存在大量同名方法。
+随机数种子固定，同样的参数总是生成同样的项目。
+ */
+@State(Scope.Benchmark)
+public class SyntheticProject {
+    public static final String PACKAGE_NAME = "bench";
+    private static final int METHODS_PER_CLASS = 100;
+    private static final long SEED = 42;
+
+    @Param({"1000", "10000", "100000"})
+    public int methods;
+
+    @Param({"4"})
+    public int fanOut;
+
+    private Path root; // 源代码根目录，对应GlobalVariables的projectPath
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        root = Files.createTempDirectory("analyzer-bench");
+        write(root.resolve(PACKAGE_NAME), methods, fanOut);
+        GlobalVariables.setProjectPath(root + File.separator);
+        GlobalVariables.setCacheEnabled(false);
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    // 生成的包所在的目录
+    public File getSourceDirectory() {
+        return root.resolve(PACKAGE_NAME).toFile();
+    }
+
+    public static void write(Path directory, int methods, int fanOut) throws IOException {
+        Files.createDirectories(directory);
+        Random random = new Random(SEED);
+        int classes = (methods + METHODS_PER_CLASS - 1) / METHODS_PER_CLASS;
+        for (int c = 0; c < classes; c++) {
+            StringBuilder source = new StringBuilder();
+            source.append("package ").append(PACKAGE_NAME).append(";\n\n");
+            source.append("public class ").append(className(c)).append(" {\n");
+            for (int m = c * METHODS_PER_CLASS; m < Math.min(methods, (c + 1) * METHODS_PER_CLASS); m++) {
+                source.append("    public static int ").append(methodName(m)).append("(int x) {\n");
+                source.append("        int r = x;\n");
+                for (int i = 0; i < fanOut; i++) {
+                    int target = random.nextInt(methods);
+                    source.append("        r += ").append(className(target / METHODS_PER_CLASS)).append('.')
+                            .append(methodName(target)).append("(r + ").append(i).append(");\n");
+                }
+                source.append("        return r;\n");
+                source.append("    }\n\n");
+            }
+            source.append("}\n");
+            Files.writeString(directory.resolve(className(c) + ".java"), source);
+        }
+    }
+
+    private static String className(int classIndex) {
+        return "C" + classIndex;
+    }
+
+    private static String methodName(int methodIndex) {
+        return "m" + methodIndex % METHODS_PER_CLASS;
+    }
+}
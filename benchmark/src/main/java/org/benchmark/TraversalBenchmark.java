@@ -0,0 +1,50 @@
+package org.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.parser.MethodInfo;
+import org.parser.ProjectAnalyzer;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// 在已经分析好的项目上查询调用链，每次从不同的方法出发
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class TraversalBenchmark {
+    // 与方法数互质的步长，让出发的方法分散在整个项目中
+    private static final int STRIDE = 7919;
+
+    @Param({"1", "3", "10"})
+    public int depth;
+
+    private ProjectAnalyzer projectAnalyzer;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void analyze(SyntheticProject project) {
+        projectAnalyzer = new ProjectAnalyzer(SyntheticProject.PACKAGE_NAME);
+        // 冻结的调用关系图在第一次查询时构建，不计入查询时间
+        projectAnalyzer.getCallGraph();
+    }
+
+    private MethodInfo nextSource() {
+        List<MethodInfo> methods = projectAnalyzer.methodInfos;
+        MethodInfo source = methods.get(next);
+        next = (next + STRIDE) % methods.size();
+        return source;
+    }
+
+    @Benchmark
+    public String getInvokes() {
+        return projectAnalyzer.getInvokes(nextSource(), depth);
+    }
+
+    @Benchmark
+    public String getInvokedBy() {
+        return projectAnalyzer.getInvokedBy(nextSource(), depth);
+    }
+}